@@ -0,0 +1,110 @@
+package Benchmarks;
+
+import jdk.nashorn.api.tree.CompilationUnitTree;
+import jdk.nashorn.api.tree.DiagnosticListener;
+import jdk.nashorn.api.tree.Parser;
+import Tests.WorkloadGenerator;
+import main.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+//measures every phase of transformation separately
+//deep nesting needs bigger stack for the recursive parser and visitors
+//it's out of src, so the sources build without jmh, compile it with classes of src/main and src/Tests
+//and with jmh-core and jmh-generator-annprocess on class path, then run with allocation rate:
+//java -cp <classes and jmh jars> org.openjdk.jmh.Main Benchmarks.TransformerBenchmark -prof gc
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss16m")
+@State(Scope.Thread)
+public class TransformerBenchmark {
+    private static final long SEED = 42;
+    private static final DiagnosticListener FAIL_ON_ERROR = (diagnostic) -> {
+        throw new IllegalStateException(diagnostic.getMessage());
+    };
+
+    @Param({"deepNesting", "wideSiblings", "manyFreeVariables", "longBinaryChain", "largeFlatFile"})
+    public String shape;
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private String source;
+    private Parser parser;
+    private CompilationUnitTree cut;
+    private ScopeAnalysis analysis;
+    private byte[] image;
+    private StringBuilder output;
+    private Transformer transformer;
+
+    @Setup
+    public void prepare() throws IOException {
+        source = generate(shape, size);
+        parser = Parser.create();
+        cut = parser.parse("benchmark.js", source, FAIL_ON_ERROR);
+        analysis = CollectorIdentifiersVisitor.analyze(cut);
+        image = new AnalyzedUnit(cut, analysis).toByteArray(source);
+        output = new StringBuilder();
+        transformer = new Transformer();
+    }
+
+    @Benchmark
+    public CompilationUnitTree parse() {
+        return parser.parse("benchmark.js", source, FAIL_ON_ERROR);
+    }
+
+    @Benchmark
+    public NodeTable lower() {
+        return NodeTable.lower(cut);
+    }
+
+    @Benchmark
+    public ScopeAnalysis analyze() {
+        return CollectorIdentifiersVisitor.analyze(cut);
+    }
+
+    @Benchmark
+    public byte[] store() throws IOException {
+        return new AnalyzedUnit(cut, analysis).toByteArray(source);
+    }
+
+    @Benchmark
+    public AnalyzedUnit load() {
+        return AnalyzedUnit.read(ByteBuffer.wrap(image), source);
+    }
+
+    @Benchmark
+    public int emit() {
+        output.setLength(0);
+        cut.accept(new DestructuringAssignmentVisitor(output, analysis), null);
+        return output.length();
+    }
+
+    @Benchmark
+    public TransformResult transform() {
+        return transformer.transform(source);
+    }
+
+    private static String generate(String shape, int size) {
+        WorkloadGenerator generator = new WorkloadGenerator(SEED);
+        switch (shape) {
+            case "deepNesting":
+                return generator.setNestingDepth(size).setSiblingFunctions(1).generateUnits(1);
+            case "wideSiblings":
+                return generator.setNestingDepth(1).setSiblingFunctions(size).generateUnits(1);
+            case "manyFreeVariables":
+                return generator.setNestingDepth(3).setFreeVariables(size).setChainLength(size).generateUnits(4);
+            case "longBinaryChain":
+                return generator.generateBinaryChain(size);
+            case "largeFlatFile":
+                return generator.setNestingDepth(0).generateUnits(size);
+            default:
+                throw new IllegalArgumentException("unknown shape " + shape);
+        }
+    }
+}
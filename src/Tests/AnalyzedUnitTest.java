@@ -0,0 +1,79 @@
+package Tests;
+
+import main.AnalyzedUnit;
+import main.SourceMap;
+import main.TransformOptions;
+import main.TransformResult;
+import main.Transformer;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+
+public class AnalyzedUnitTest {
+    private static final String UNSUPPORTED = "var s = 'it\\'s';\r\n" +
+            "if (s) {\n" +
+            "    print(s + 1.5);\n" +
+            "}\n";
+
+    private void assertLoadedUnitEmitsTheSame(TransformOptions options, String code) throws Exception {
+        Transformer transformer = new Transformer(options);
+        StringBuilder parsedOutput = new StringBuilder();
+        SourceMap parsedMap = new SourceMap();
+        AnalyzedUnit[] unit = {null};
+        TransformResult parsed = transformer.transform("test.js", code, parsedOutput, parsedMap,
+                (analyzed) -> unit[0] = analyzed);
+        assertNotNull(unit[0]);
+        AnalyzedUnit loaded = AnalyzedUnit.read(ByteBuffer.wrap(unit[0].toByteArray(code)), code);
+        StringBuilder loadedOutput = new StringBuilder();
+        SourceMap loadedMap = new SourceMap();
+        TransformResult result = transformer.transform("test.js", code, loaded, loadedOutput, loadedMap);
+        assertEquals(parsed.isSuccess(), result.isSuccess());
+        assertEquals(parsedOutput.toString(), loadedOutput.toString());
+        StringBuilder parsedMapJson = new StringBuilder();
+        parsedMap.write(parsedMapJson, "out.js", "test.js");
+        StringBuilder loadedMapJson = new StringBuilder();
+        loadedMap.write(loadedMapJson, "out.js", "test.js");
+        assertEquals(parsedMapJson.toString(), loadedMapJson.toString());
+        assertEquals(parsed.getDiagnostics().size(), result.getDiagnostics().size());
+        for (int i = 0; i < parsed.getDiagnostics().size(); ++i) {
+            assertEquals(parsed.getDiagnostics().get(i).toString(), result.getDiagnostics().get(i).toString());
+            assertEquals(parsed.getDiagnostics().get(i).getLine(), result.getDiagnostics().get(i).getLine());
+            assertEquals(parsed.getDiagnostics().get(i).getColumn(), result.getDiagnostics().get(i).getColumn());
+        }
+    }
+
+    @Test
+    public void emitsLoadedUnitTheSameAsParsedSource() throws Exception {
+        TransformOptions[] options = {new TransformOptions(),
+                new TransformOptions().setMinimalParentheses(true).setCompact(true).setShortenLiftedParameters(true),
+                new TransformOptions().setCopyUnchanged(true).setParallelEmission(true)};
+        for (long seed = 0; seed < 20; ++seed) {
+            WorkloadGenerator generator = new WorkloadGenerator(seed)
+                    .setNestingDepth((int) (seed % 4))
+                    .setSiblingFunctions((int) (seed % 3) + 1)
+                    .setFreeVariables((int) (seed % 3));
+            String code = generator.generateUnits(2) + generator.generateBinaryChain(10);
+            for (TransformOptions option : options) {
+                assertLoadedUnitEmitsTheSame(option, code);
+            }
+        }
+    }
+
+    @Test
+    public void recoversLoadedUnitAtTheSamePositions() throws Exception {
+        String code = UNSUPPORTED + new WorkloadGenerator(1).setNestingDepth(2).generateUnits(1);
+        assertLoadedUnitEmitsTheSame(new TransformOptions().setRecoverable(true), code);
+        assertLoadedUnitEmitsTheSame(new TransformOptions(), code);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsImageOfOtherSource() throws Exception {
+        String code = "var a = 1;\n";
+        AnalyzedUnit[] unit = {null};
+        new Transformer().transform("test.js", code, new StringBuilder(), null, (analyzed) -> unit[0] = analyzed);
+        AnalyzedUnit.read(ByteBuffer.wrap(unit[0].toByteArray(code)), code + "a = 2;\n");
+    }
+}
@@ -0,0 +1,39 @@
+package Tests;
+
+import main.BatchTransformer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+
+public class BatchTransformerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file(String name, String content) throws Exception {
+        Path path = folder.getRoot().toPath().resolve(name);
+        Files.createDirectories(path.getParent());
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    @Test
+    public void reportsInputsOfTheSameOutput() throws Exception {
+        Path first = file("a/x.js", "var a = 1;\n");
+        file("b/x.js", "var b = 2;\n");
+        Path output = folder.getRoot().toPath().resolve("out");
+        BatchTransformer batch = new BatchTransformer(output);
+        batch.addInput(first.getParent().toString());
+        //the same file again isn't collision
+        batch.addInput(first.toString());
+        batch.addInput(folder.getRoot().toPath().resolve("b").toString());
+        assertEquals(1, batch.run());
+        assertEquals("var a = 1;\n", new String(Files.readAllBytes(output.resolve("x.js")), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,70 @@
+package Tests;
+
+import main.TransformOptions;
+import main.TransformResult;
+import main.Transformer;
+import org.junit.Test;
+
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+
+public class CompactOutputTest {
+    private final Transformer full = new Transformer();
+    private final Transformer compact = new Transformer(new TransformOptions().setCompact(true));
+    private final Transformer shortened = new Transformer(new TransformOptions().setMinimalParentheses(true)
+            .setCompact(true).setShortenLiftedParameters(true));
+
+    private String transform(Transformer transformer, String code) {
+        TransformResult result = transformer.transform(code);
+        assertTrue(result.getDiagnostics().toString(), result.isSuccess());
+        return result.getOutput();
+    }
+
+    private String run(String code) throws ScriptException {
+        ScriptEngine engine = new ScriptEngineManager().getEngineByName("nashorn");
+        StringWriter output = new StringWriter();
+        engine.getContext().setWriter(output);
+        engine.eval(code);
+        return output.toString();
+    }
+
+    @Test
+    public void separatesOnlyMergingTokens() {
+        assertEquals("var x=(a)-(-b);var y=typeof a;", transform(compact, "var x = a - -b; var y = typeof a;"));
+        assertEquals("var x=a- -b+ +c- -d;", transform(new Transformer(new TransformOptions()
+                .setMinimalParentheses(true).setCompact(true)), "var x = a - -b + +c - (-d);"));
+        assertEquals("function f(a){return(a)in(b);}", transform(compact, "function f(a) { return a in b; }"));
+    }
+
+    @Test
+    public void shortensLiftedParameters() throws ScriptException {
+        String code = "function outer(first, second) {\n" +
+                "    var counter = first;\n" +
+                "    function inner(value) {\n" +
+                "        return value + counter * second;\n" +
+                "    }\n" +
+                "    return inner(2);\n" +
+                "}\n" +
+                "print(outer(3, 4));\n";
+        String output = transform(shortened, code);
+        assertTrue(output, output.contains("function outer$inner(value,a,b){return value+a*b;}"));
+        assertTrue(output, output.contains("outer$inner(2,counter,second)"));
+        assertEquals(run(code), run(output));
+    }
+
+    @Test
+    public void generatedPrograms() throws ScriptException {
+        for (int seed = 0; seed < 30; ++seed) {
+            WorkloadGenerator generator = new WorkloadGenerator(seed).setFreeVariables(1 + seed % 8);
+            String code = generator.generateUnits(3);
+            //compact output has the same structure as usual one
+            assertEquals(transform(full, code), transform(full, transform(compact, code)));
+            assertEquals(run(code), run(transform(shortened, code)));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package Tests;
+
+import main.TransformOptions;
+import main.TransformResult;
+import main.Transformer;
+import org.junit.Test;
+
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+
+public class CopyUnchangedTest {
+    private final Transformer copying = new Transformer(new TransformOptions().setCopyUnchanged(true));
+
+    private String transform(Transformer transformer, String code) {
+        TransformResult result = transformer.transform(code);
+        assertTrue(result.getDiagnostics().toString(), result.isSuccess());
+        return result.getOutput();
+    }
+
+    private String run(String code) throws ScriptException {
+        ScriptEngine engine = new ScriptEngineManager().getEngineByName("nashorn");
+        StringWriter output = new StringWriter();
+        engine.getContext().setWriter(output);
+        engine.eval(code);
+        return output.toString();
+    }
+
+    @Test
+    public void copiesStatementsWithoutLiftedFunctions() {
+        String code = "var s = \"a (b)\";\n" +
+                "var t = (s + 1) * (2)  ;\n" +
+                "function h(p) { return [p, 'q']; }\n" +
+                "function f(x) {\n" +
+                "    var y = x  +  1;\n" +
+                "    function g() {\n" +
+                "        return y /  2;\n" +
+                "    }\n" +
+                "    return g();\n" +
+                "}\n" +
+                "t += f(1)\n";
+        assertEquals("var s = \"a (b)\";\n" +
+                "var t = (s + 1) * (2);\n" +
+                "function h(p) { return [p, 'q']; }\n" +
+                "function f(x) {\n" +
+                "var y = x  +  1;\n" +
+                "return f$g(y);\n" +
+                "}\n" +
+                "t += f(1);\n" +
+                "function f$g(y) {\n" +
+                "return y /  2;\n" +
+                "}\n", transform(copying, code));
+    }
+
+    @Test
+    public void dropsTrailingCommentsOfCopiedStatements() throws ScriptException {
+        String code = "function f(x) {\n" +
+                "    function g(y) { return x + y; }\n" +
+                "    var a = 'q' // note\n" +
+                "    var b = 1 /* note */\n" +
+                "    return (g(x)) + (print(a + b));\n" +
+                "}\n" +
+                "f(1);\n";
+        String output = transform(copying, code);
+        assertTrue(output, output.contains("var a = 'q';\nvar b = 1;\n"));
+        assertEquals(run(code), run(output));
+    }
+
+    @Test
+    public void generatedPrograms() throws ScriptException {
+        Transformer parallel = new Transformer(new TransformOptions().setCopyUnchanged(true)
+                .setParallelEmission(true));
+        for (int seed = 0; seed < 30; ++seed) {
+            String code = new WorkloadGenerator(seed).generateUnits(3);
+            String output = transform(copying, code);
+            assertEquals(run(code), run(output));
+            assertEquals(output, transform(parallel, code));
+        }
+    }
+}
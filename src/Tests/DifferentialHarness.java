@@ -0,0 +1,155 @@
+package Tests;
+
+import main.Transformer;
+
+import javax.script.*;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.LongFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+//checks in memory that transformed program prints the same as the original one,
+//every thread keeps its own engine and every program runs in a fresh global scope
+public class DifferentialHarness {
+    private final ThreadLocal<ScriptEngine> engines =
+            ThreadLocal.withInitial(() -> new ScriptEngineManager().getEngineByName("nashorn"));
+    //returns null if code isn't transformed
+    private final UnaryOperator<String> transform;
+
+    public DifferentialHarness(Transformer transformer) {
+        this((code) -> transformer.transform(code).getOutput());
+    }
+
+    public DifferentialHarness(UnaryOperator<String> transform) {
+        this.transform = transform;
+    }
+
+    //cases are generated by seeds from 0 and checked by all cores, failures are shrunk
+    public List<Failure> run(int count, LongFunction<String> generator) {
+        return LongStream.range(0, count).parallel()
+                .mapToObj((seed) -> check(generator.apply(seed)))
+                .filter(Objects::nonNull)
+                .map(this::shrink)
+                .collect(Collectors.toList());
+    }
+
+    //null if transformed program prints the same
+    public Failure check(String code) {
+        String transformed;
+        try {
+            transformed = transform.apply(code);
+        } catch (RuntimeException e) {
+            return new Failure(Failure.Kind.THROWS, code, e.toString());
+        }
+        if (transformed == null) {
+            return new Failure(Failure.Kind.NOT_TRANSFORMED, code, "");
+        }
+        String expected = run(code);
+        String actual = run(transformed);
+        if (expected.equals(actual)) {
+            return null;
+        }
+        return new Failure(Failure.Kind.DIFFERENT_OUTPUT, code,
+                "prints\n" + actual + "instead of\n" + expected + "after transformation to\n" + transformed);
+    }
+
+    //printed output, type of thrown error is appended to it,
+    //the rest of message is skipped because lines of transformed program differ
+    public String run(String code) {
+        ScriptEngine engine = engines.get();
+        ScriptContext context = new SimpleScriptContext();
+        context.setBindings(engine.createBindings(), ScriptContext.ENGINE_SCOPE);
+        StringWriter output = new StringWriter();
+        context.setWriter(output);
+        try {
+            engine.eval(code, context);
+        } catch (ScriptException e) {
+            String message = String.valueOf(e.getMessage());
+            output.append("throws ").append(message, 0, Math.max(0, message.indexOf(':'))).append('\n');
+        }
+        return output.toString();
+    }
+
+    //chunks of lines are removed while the rest still compiles and fails the same way,
+    //chunks are halved down to single lines, so no line of result can be removed
+    public Failure shrink(Failure failure) {
+        List<String> lines = new ArrayList<>(Arrays.asList(failure.getCode().split("\n")));
+        int chunk = Math.max(1, lines.size() / 2);
+        while (true) {
+            boolean isRemoved = false;
+            int start = 0;
+            while (start < lines.size() && lines.size() > 1) {
+                List<String> candidate = new ArrayList<>(lines.subList(0, start));
+                candidate.addAll(lines.subList(Math.min(lines.size(), start + chunk), lines.size()));
+                String code = String.join("\n", candidate) + "\n";
+                Failure smaller = reproduce(failure, code);
+                if (smaller != null) {
+                    lines = candidate;
+                    failure = smaller;
+                    isRemoved = true;
+                } else {
+                    start += chunk;
+                }
+            }
+            //removal of a line may let the previous ones go, so single lines are tried until nothing changes
+            if (chunk > 1) {
+                chunk /= 2;
+            } else if (!isRemoved) {
+                return failure;
+            }
+        }
+    }
+
+    public boolean reproduces(Failure failure, String code) {
+        return reproduce(failure, code) != null;
+    }
+
+    //programs with syntax errors are never transformed, so they don't reproduce any failure
+    private Failure reproduce(Failure failure, String code) {
+        try {
+            ((Compilable) engines.get()).compile(code);
+        } catch (ScriptException e) {
+            return null;
+        }
+        Failure result = check(code);
+        return result != null && result.getKind() == failure.getKind() ? result : null;
+    }
+
+    public static class Failure {
+        public enum Kind {
+            THROWS, NOT_TRANSFORMED, DIFFERENT_OUTPUT
+        }
+
+        private Kind kind;
+        private String code;
+        private String message;
+
+        public Failure(Kind kind, String code, String message) {
+            this.kind = kind;
+            this.code = code;
+            this.message = message;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return kind + " for\n" + code + message;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package Tests;
+
+import main.TransformOptions;
+import main.Transformer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+
+public class DifferentialTest {
+    private static final int CASES = 200;
+
+    private static String generate(long seed) {
+        return new WorkloadGenerator(seed)
+                .setNestingDepth((int) (seed % 4))
+                .setSiblingFunctions((int) (seed % 3) + 1)
+                .setFreeVariables((int) (seed % 3))
+                .generateUnits(2);
+    }
+
+    @Test
+    public void generatedPrograms() {
+        DifferentialHarness harness = new DifferentialHarness(new Transformer());
+        assertEquals("[]", harness.run(CASES, DifferentialTest::generate).toString());
+    }
+
+    @Test
+    public void generatedProgramsWithOutputOptions() {
+        DifferentialHarness harness = new DifferentialHarness(new Transformer(new TransformOptions()
+                .setMinimalParentheses(true).setCompact(true).setShortenLiftedParameters(true)
+                .setCopyUnchanged(true)));
+        assertEquals("[]", harness.run(CASES, DifferentialTest::generate).toString());
+    }
+
+    @Test
+    public void shrinksFailureToMinimalRepro() {
+        //broken transformation changes every subtraction
+        DifferentialHarness harness = new DifferentialHarness((code) -> code.replace(" - ", " + "));
+        List<DifferentialHarness.Failure> failures = harness.run(20, DifferentialTest::generate);
+        assertFalse(failures.isEmpty());
+        for (DifferentialHarness.Failure failure : failures) {
+            assertEquals(DifferentialHarness.Failure.Kind.DIFFERENT_OUTPUT, failure.getKind());
+            assertTrue(failure.getCode(), failure.getCode().contains(" - "));
+            List<String> lines = Arrays.asList(failure.getCode().split("\n"));
+            for (int i = 0; i < lines.size(); ++i) {
+                List<String> smaller = new ArrayList<>(lines);
+                smaller.remove(i);
+                assertFalse(failure.getCode(), harness.reproduces(failure, String.join("\n", smaller) + "\n"));
+            }
+        }
+    }
+}
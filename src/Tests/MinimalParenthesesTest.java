@@ -0,0 +1,49 @@
+package Tests;
+
+import main.TransformOptions;
+import main.TransformResult;
+import main.Transformer;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class MinimalParenthesesTest {
+    private final Transformer full = new Transformer();
+    private final Transformer minimal = new Transformer(new TransformOptions().setMinimalParentheses(true));
+
+    //fully parenthesized output shows structure of parsed code,
+    //so it's the same for both outputs only if minimal one keeps every operation in its place
+    private void assertSameStructure(String code) {
+        TransformResult minimalResult = minimal.transform(code);
+        assertTrue(minimalResult.getDiagnostics().toString(), minimalResult.isSuccess());
+        String expected = full.transform(code).getOutput();
+        assertEquals(expected, full.transform(minimalResult.getOutput()).getOutput());
+    }
+
+    @Test
+    public void keepsRequiredParentheses() {
+        String code = "var c = a - (b - 1) * (a + b) / 2 - -a + +b;\n" +
+                "var d = -(-a) + !(a < b) + (a, b);\n" +
+                "var e = (a = 4) + typeof (a + b) + (a || b && c) * (a | b ^ c & d);\n";
+        assertSameStructure(code);
+        assertEquals("var c = a - (b - 1) * (a + b) / 2 - -a + +b;\n" +
+                "var d = -(-a) + !(a < b) + (a , b);\n" +
+                "var e = (a = 4) + typeof (a + b) + (a || b && c) * (a | b ^ c & d);\n",
+                minimal.transform(code).getOutput());
+    }
+
+    @Test
+    public void dropsRedundantParentheses() {
+        assertEquals("var x = a + b + c + d;\n", minimal.transform("var x = ((a + b) + c) + d;").getOutput());
+        assertEquals("var x = a * b + c * d;\n", minimal.transform("var x = (a * b) + (c * d);").getOutput());
+    }
+
+    @Test
+    public void generatedPrograms() {
+        for (int seed = 0; seed < 50; ++seed) {
+            WorkloadGenerator generator = new WorkloadGenerator(seed).setChainLength(2 + seed % 6);
+            assertSameStructure(generator.generateUnits(3) + generator.generateBinaryChain(30));
+        }
+    }
+}
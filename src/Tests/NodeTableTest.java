@@ -0,0 +1,66 @@
+package Tests;
+
+import jdk.nashorn.api.tree.CompilationUnitTree;
+import jdk.nashorn.api.tree.Parser;
+import jdk.nashorn.api.tree.Tree;
+import main.NodeTable;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+
+public class NodeTableTest {
+
+    private List<Tree.Kind> children(NodeTable nodes, int node) {
+        List<Tree.Kind> result = new ArrayList<>();
+        for (int child = nodes.getFirstChild(node); child >= 0; child = nodes.getNextSibling(child)) {
+            result.add(nodes.getKind(child));
+        }
+        return result;
+    }
+
+    @Test
+    public void linksChildrenInSourceOrder() {
+        String code = "var x = a + 1;\n" +
+                "function f(p, q) {\n" +
+                "    return g(p, x);\n" +
+                "}\n";
+        CompilationUnitTree cut = Parser.create().parse("test.js", code, System.err::println);
+        Map<Tree, Integer> indexes = new IdentityHashMap<>();
+        NodeTable nodes = NodeTable.lower(cut, indexes);
+        assertEquals(Integer.valueOf(0), indexes.get(cut));
+        assertEquals(Arrays.asList(Tree.Kind.VARIABLE, Tree.Kind.FUNCTION), children(nodes, 0));
+        int variable = nodes.getFirstChild(0);
+        //binding goes before initializer
+        assertEquals(Arrays.asList(Tree.Kind.IDENTIFIER, Tree.Kind.PLUS), children(nodes, variable));
+        int function = nodes.getNextSibling(variable);
+        assertEquals("f", nodes.getName(function));
+        assertEquals(Arrays.asList(Tree.Kind.IDENTIFIER, Tree.Kind.IDENTIFIER, Tree.Kind.BLOCK),
+                children(nodes, function));
+        assertEquals(code.indexOf("function"), nodes.getStartPosition(function));
+        assertEquals(15, nodes.size());
+        assertEquals(15, indexes.size());
+    }
+
+    @Test
+    public void internsNames() {
+        CompilationUnitTree cut = Parser.create().parse("test.js", "x = x + y.x;\n", System.err::println);
+        NodeTable nodes = NodeTable.lower(cut);
+        List<Integer> symbols = new ArrayList<>();
+        for (int node = 0; node < nodes.size(); ++node) {
+            if (nodes.getSymbol(node) >= 0) {
+                symbols.add(nodes.getSymbol(node));
+            }
+        }
+        //x, x, member x and y
+        assertEquals(4, symbols.size());
+        assertEquals(2, nodes.getSymbolsCount());
+        assertEquals(3, symbols.stream().filter((symbol) -> symbol.equals(symbols.get(0))).count());
+    }
+}
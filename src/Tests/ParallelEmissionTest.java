@@ -0,0 +1,43 @@
+package Tests;
+
+import main.TransformOptions;
+import main.TransformResult;
+import main.Transformer;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class ParallelEmissionTest {
+
+    private void assertSameOutput(String code, TransformOptions sequential, TransformOptions parallel) {
+        TransformResult expected = new Transformer(sequential).transform(code);
+        TransformResult actual = new Transformer(parallel).transform(code);
+        assertEquals(expected.isSuccess(), actual.isSuccess());
+        assertEquals(expected.getOutput(), actual.getOutput());
+        assertEquals(expected.getDiagnostics().toString(), actual.getDiagnostics().toString());
+        assertEquals(expected.getMetrics().getNodesCount(), actual.getMetrics().getNodesCount());
+        assertEquals(expected.getMetrics().getLiftedFunctionsCount(), actual.getMetrics().getLiftedFunctionsCount());
+    }
+
+    @Test
+    public void largeGeneratedPrograms() {
+        for (int seed = 0; seed < 5; ++seed) {
+            String code = new WorkloadGenerator(seed).setSiblingFunctions(3).generateUnits(300);
+            assertTrue(code.length() > 64 * 1024);
+            assertSameOutput(code, new TransformOptions(), new TransformOptions().setParallelEmission(true));
+            assertSameOutput(code, new TransformOptions().setMinimalParentheses(true).setCompact(true)
+                            .setShortenLiftedParameters(true),
+                    new TransformOptions().setMinimalParentheses(true).setCompact(true)
+                            .setShortenLiftedParameters(true).setParallelEmission(true));
+        }
+    }
+
+    @Test
+    public void reportsFirstFailure() {
+        WorkloadGenerator generator = new WorkloadGenerator(1);
+        String code = generator.generateUnits(200) + "a += 1;\n" + generator.generateUnits(200) + "b -= 1;\n";
+        assertSameOutput(code, new TransformOptions(), new TransformOptions().setParallelEmission(true));
+        assertFalse(new Transformer(new TransformOptions().setParallelEmission(true)).transform(code).isSuccess());
+    }
+}
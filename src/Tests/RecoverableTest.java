@@ -0,0 +1,108 @@
+package Tests;
+
+import main.TransformDiagnostic;
+import main.TransformOptions;
+import main.TransformResult;
+import main.Transformer;
+import org.junit.Test;
+
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+
+public class RecoverableTest {
+    private final Transformer recoverable = new Transformer(new TransformOptions().setRecoverable(true));
+
+    private String run(String code) throws ScriptException {
+        ScriptEngine engine = new ScriptEngineManager().getEngineByName("nashorn");
+        StringWriter output = new StringWriter();
+        engine.getContext().setWriter(output);
+        engine.eval(code);
+        return output.toString();
+    }
+
+    @Test
+    public void copiesUnsupportedStatements() throws ScriptException {
+        String code = "var o = {k: [1, (2)]};\n" +
+                "var n;\n" +
+                "function f(x) {\n" +
+                "    var y = x + 1;\n" +
+                "    function g(z) {\n" +
+                "        if (z) { y = \"a)\"; }\n" +
+                "        return y;\n" +
+                "    }\n" +
+                "    for (var i = 0; i < 2; i++) print(i)\n" +
+                "    return g(x);\n" +
+                "}\n" +
+                "print(f(1));\n";
+        TransformResult result = recoverable.transform(code);
+        assertTrue(result.getDiagnostics().toString(), result.isSuccess());
+        assertEquals("var o = {k: [1, (2)]};\n" +
+                "var n;\n" +
+                "function f(x) {\n" +
+                "var y = (x) + (1);\n" +
+                "for (var i = 0; i < 2; i++) print(i);\n" +
+                "return f$g(x, y);\n" +
+                "}\n" +
+                "print(f(1));\n" +
+                "function f$g(z, y) {\n" +
+                "if (z) { y = \"a)\"; }\n" +
+                "return y;\n" +
+                "}\n", result.getOutput());
+        assertEquals(run(code), run(result.getOutput()));
+        assertEquals(3, result.getDiagnostics().size());
+        TransformDiagnostic diagnostic = result.getDiagnostics().get(1);
+        assertEquals(TransformDiagnostic.Kind.WARNING, diagnostic.getKind());
+        assertEquals(6, diagnostic.getLine());
+        assertEquals(8, diagnostic.getColumn());
+    }
+
+    @Test
+    public void copiesSourceElementWhenRewrittenStatementFails() throws ScriptException {
+        String code = "function f(x) {\n" +
+                "    function g() { return x; }\n" +
+                "    if (x) { return g(); }\n" +
+                "    return 0;\n" +
+                "}\n" +
+                "function h(a) { return a; }\n" +
+                "print(f(2) + h(1));\n";
+        TransformResult result = recoverable.transform(code);
+        assertTrue(result.getDiagnostics().toString(), result.isSuccess());
+        assertEquals("function f(x) {\n" +
+                "    function g() { return x; }\n" +
+                "    if (x) { return g(); }\n" +
+                "    return 0;\n" +
+                "}\n" +
+                "function h(a) {\n" +
+                "return a;\n" +
+                "}\n" +
+                "print((f(2)) + (h(1)));\n", result.getOutput());
+        assertEquals(run(code), run(result.getOutput()));
+        assertEquals(1, result.getDiagnostics().size());
+        assertEquals(1, result.getDiagnostics().get(0).getLine());
+        assertFalse(new Transformer().transform(code).isSuccess());
+    }
+
+    @Test
+    public void semicolonIsntAddedToTrailingComment() throws ScriptException {
+        String code = "var o = {k: 1} // note\nvar b = 2;\nprint(b);\n";
+        TransformResult result = new Transformer(new TransformOptions().setRecoverable(true).setCompact(true))
+                .transform(code);
+        assertTrue(result.getDiagnostics().toString(), result.isSuccess());
+        assertEquals("2\n", run(result.getOutput()));
+    }
+
+    @Test
+    public void copiesStatementFailingWithAnyException() throws ScriptException {
+        //emission of null literal fails with NullPointerException
+        String code = "var x = null;\nprint(x);\n";
+        TransformResult result = recoverable.transform(code);
+        assertTrue(result.getDiagnostics().toString(), result.isSuccess());
+        assertEquals(run(code), run(result.getOutput()));
+        assertEquals(1, result.getDiagnostics().size());
+    }
+}
@@ -0,0 +1,129 @@
+package Tests;
+
+import jdk.nashorn.api.tree.*;
+import main.CollectorIdentifiersVisitor;
+import main.ScopeAnalysis;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class ScopeAnalysisTest {
+
+    private Map<String, List<String>> freeVariables(String code) {
+        CompilationUnitTree cut = Parser.create().parse("test.js", code, System.err::println);
+        ScopeAnalysis analysis = CollectorIdentifiersVisitor.analyze(cut);
+        Map<String, List<String>> result = new HashMap<>();
+        cut.accept(new SimpleTreeVisitorES6<Void, Void>() {
+            @Override
+            public Void visitFunctionDeclaration(FunctionDeclarationTree node, Void r) {
+                result.put(node.getName().getName(), analysis.getFreeVariables(node));
+                return super.visitFunctionDeclaration(node, r);
+            }
+        }, null);
+        return result;
+    }
+
+    @Test
+    public void nestedFunctionsPassVariablesThroughParents() {
+        Map<String, List<String>> result = freeVariables(
+                "function outer(a, b) {\n" +
+                "    var x = a + b;\n" +
+                "    function inner(c) {\n" +
+                "        var y = c * x;\n" +
+                "        function deep(d) {\n" +
+                "            return d + y + a;\n" +
+                "        }\n" +
+                "        return deep(c) - b;\n" +
+                "    }\n" +
+                "    return inner(x);\n" +
+                "}\n");
+        assertEquals(Arrays.asList("y", "a"), result.get("deep"));
+        assertEquals(Arrays.asList("x", "a", "b"), result.get("inner"));
+        assertEquals(Collections.emptyList(), result.get("outer"));
+    }
+
+    @Test
+    public void variableDeclaredAfterUseIsOwn() {
+        Map<String, List<String>> result = freeVariables(
+                "function e() {\n" +
+                "    function f() {\n" +
+                "        function g() {\n" +
+                "            return y;\n" +
+                "        }\n" +
+                "        var y = 5;\n" +
+                "        return g();\n" +
+                "    }\n" +
+                "    return f();\n" +
+                "}\n");
+        assertEquals(Collections.singletonList("y"), result.get("g"));
+        assertEquals(Collections.emptyList(), result.get("f"));
+    }
+
+    @Test
+    public void shadowedVariableIsNotFree() {
+        Map<String, List<String>> result = freeVariables(
+                "function f(a, b) {\n" +
+                "    function g(c) {\n" +
+                "        var a = c;\n" +
+                "        return a + b;\n" +
+                "    }\n" +
+                "    return g(a);\n" +
+                "}\n");
+        assertEquals(Collections.singletonList("b"), result.get("g"));
+    }
+
+    @Test
+    public void deepNestingKeepsEveryLevel() {
+        int depth = 200;
+        StringBuilder code = new StringBuilder();
+        for (int i = 0; i < depth; ++i) {
+            code.append("function f").append(i).append("(p").append(i).append(") {\n");
+        }
+        code.append("return p0 + p").append(depth - 1).append(";\n");
+        for (int i = depth - 1; i >= 0; --i) {
+            code.append("}\n");
+        }
+        Map<String, List<String>> result = freeVariables(code.toString());
+        assertEquals(Collections.singletonList("p0"), result.get("f" + (depth - 1)));
+        assertEquals(Collections.singletonList("p0"), result.get("f1"));
+        assertEquals(Collections.emptyList(), result.get("f0"));
+    }
+
+    @Test
+    public void calledSiblingsPassTheirVariables() {
+        Map<String, List<String>> result = freeVariables(
+                "function f(a, b, c) {\n" +
+                "    function even(n) {\n" +
+                "        return n == 0 ? a : odd(n - 1);\n" +
+                "    }\n" +
+                "    function odd(n) {\n" +
+                "        return n == 0 ? b : even(n - 1);\n" +
+                "    }\n" +
+                "    function g(b) {\n" +
+                "        return even(b) + c;\n" +
+                "    }\n" +
+                "    return g(a);\n" +
+                "}\n");
+        assertEquals(Arrays.asList("a", "b"), result.get("even"));
+        assertEquals(Arrays.asList("b", "a"), result.get("odd"));
+        //own parameter b of g can't be passed for b of f
+        assertEquals(Arrays.asList("c", "a"), result.get("g"));
+    }
+
+    @Test
+    public void longCallChainReachesEveryCaller() {
+        int length = 5000;
+        StringBuilder code = new StringBuilder("function f(x) {\n");
+        for (int i = 0; i < length; ++i) {
+            code.append("function g").append(i).append("() { return ")
+                    .append(i + 1 < length ? "g" + (i + 1) + "()" : "x").append("; }\n");
+        }
+        code.append("return g0();\n}\n");
+        Map<String, List<String>> result = freeVariables(code.toString());
+        assertEquals(Collections.singletonList("x"), result.get("g0"));
+        assertEquals(Collections.singletonList("x"), result.get("g" + (length / 2)));
+    }
+}
@@ -0,0 +1,129 @@
+package Tests;
+
+import main.SourceMap;
+import main.TransformOptions;
+import main.TransformResult;
+import main.Transformer;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+
+public class SourceMapTest {
+    private static final String BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+
+    //every segment as generated line, generated column, source line and source column
+    private static List<int[]> decode(String mappings) {
+        List<int[]> segments = new ArrayList<>();
+        int[] previous = new int[4];
+        String[] lines = mappings.split(";", -1);
+        for (int line = 0; line < lines.length; ++line) {
+            previous[0] = 0;
+            for (String segment : lines[line].split(",")) {
+                if (segment.isEmpty()) {
+                    continue;
+                }
+                int[] fields = new int[4];
+                int field = 0;
+                int value = 0;
+                int shift = 0;
+                for (char c : segment.toCharArray()) {
+                    int digit = BASE64.indexOf(c);
+                    value |= (digit & 31) << shift;
+                    shift += 5;
+                    if ((digit & 32) == 0) {
+                        fields[field++] = (value & 1) == 1 ? -(value >>> 1) : value >>> 1;
+                        value = 0;
+                        shift = 0;
+                    }
+                }
+                previous[0] += fields[0];
+                previous[2] += fields[2];
+                previous[3] += fields[3];
+                segments.add(new int[]{line, previous[0], previous[2], previous[3]});
+            }
+        }
+        return segments;
+    }
+
+    private static String tokenAt(String[] lines, int line, int column) {
+        Matcher matcher = Pattern.compile("[\\w$]+|.").matcher(lines[line]);
+        return matcher.find(column) ? matcher.group() : "";
+    }
+
+    //identifiers and keywords are mapped to the same tokens of the source,
+    //lifted functions are mapped to their names qualified by names of parents
+    private void assertMapsTokens(String code, TransformOptions options) throws IOException {
+        StringBuilder output = new StringBuilder();
+        SourceMap sourceMap = new SourceMap();
+        TransformResult result = new Transformer(options).transform("input.js", new StringReader(code), output,
+                sourceMap);
+        assertTrue(result.getDiagnostics().toString(), result.isSuccess());
+        StringBuilder json = new StringBuilder();
+        sourceMap.write(json, "output.js", "input.js");
+        Matcher mappings = Pattern.compile("\"mappings\":\"([^\"]*)\"").matcher(json);
+        assertTrue(json.toString(), mappings.find());
+        List<int[]> segments = decode(mappings.group(1));
+        assertEquals(sourceMap.getMappingsCount(), segments.size());
+        String[] outputLines = output.toString().split("\n");
+        String[] sourceLines = code.split("\n");
+        int mappedNames = 0;
+        for (int[] segment : segments) {
+            String generated = tokenAt(outputLines, segment[0], segment[1]);
+            if (Character.isLetter(generated.charAt(0))) {
+                String source = tokenAt(sourceLines, segment[2], segment[3]);
+                assertTrue(source + " " + generated, generated.equals(source) || generated.endsWith("$" + source));
+                mappedNames++;
+            }
+        }
+        assertTrue(mappedNames > 0);
+    }
+
+    @Test
+    public void mapsLiftedFunctions() throws IOException {
+        String code = "var a = 5;\n" +
+                "function f(x, y) {\n" +
+                "    function g(z) {\n" +
+                "        return (x - z) * y;\n" +
+                "    }\n" +
+                "    return g(x + y) - (x - y);\n" +
+                "}\n" +
+                "print(f(a, 3));\n";
+        assertMapsTokens(code, new TransformOptions());
+        assertMapsTokens(code, new TransformOptions().setCompact(true));
+    }
+
+    @Test
+    public void generatedPrograms() throws IOException {
+        for (int seed = 0; seed < 30; ++seed) {
+            WorkloadGenerator generator = new WorkloadGenerator(seed);
+            String code = generator.generateUnits(3);
+            assertMapsTokens(code, new TransformOptions());
+            assertMapsTokens(code, new TransformOptions().setMinimalParentheses(true).setCompact(true));
+            assertMapsTokens(code, new TransformOptions().setStreamLiftedFunctions(true));
+            assertMapsTokens(code, new TransformOptions().setCompact(true).setStreamLiftedFunctions(true));
+        }
+    }
+
+    @Test
+    public void streamedMapIsTheSameAsWrittenOne() throws IOException {
+        String code = new WorkloadGenerator(7).generateUnits(3);
+        SourceMap kept = new SourceMap();
+        assertTrue(new Transformer().transform("input.js", code, new StringBuilder(), kept).isSuccess());
+        StringBuilder written = new StringBuilder();
+        kept.write(written, "output.js", "input.js");
+        StringBuilder streamed = new StringBuilder();
+        SourceMap streaming = new SourceMap(streamed, "output.js", "input.js");
+        assertTrue(new Transformer().transform("input.js", code, new StringBuilder(), streaming).isSuccess());
+        streaming.finish();
+        assertEquals(written.toString(), streamed.toString());
+        assertEquals(kept.getMappingsCount(), streaming.getMappingsCount());
+    }
+}
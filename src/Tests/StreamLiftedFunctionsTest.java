@@ -0,0 +1,67 @@
+package Tests;
+
+import main.TransformOptions;
+import main.TransformResult;
+import main.Transformer;
+import org.junit.Test;
+
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+
+public class StreamLiftedFunctionsTest {
+    private final Transformer buffered = new Transformer();
+    private final Transformer streamed = new Transformer(new TransformOptions().setStreamLiftedFunctions(true));
+
+    private String transform(Transformer transformer, String code) {
+        TransformResult result = transformer.transform(code);
+        assertTrue(result.getDiagnostics().toString(), result.isSuccess());
+        return result.getOutput();
+    }
+
+    private String run(String code) throws ScriptException {
+        ScriptEngine engine = new ScriptEngineManager().getEngineByName("nashorn");
+        StringWriter output = new StringWriter();
+        engine.getContext().setWriter(output);
+        engine.eval(code);
+        return output.toString();
+    }
+
+    @Test
+    public void writesFunctionsInOrderOfCompletion() {
+        String code = "function f(x) {\n" +
+                "    function g(y) {\n" +
+                "        function h(z) {\n" +
+                "            return x + y + z;\n" +
+                "        }\n" +
+                "        return h(1);\n" +
+                "    }\n" +
+                "    return g(2);\n" +
+                "}\n" +
+                "print(f(3));\n";
+        assertEquals("function f(x) {\n" +
+                "return f$g(2, x);\n" +
+                "}\n" +
+                "print(f(3));\n" +
+                "function f$g$h(z, x, y) {\n" +
+                "return ((x) + (y)) + (z);\n" +
+                "}\n" +
+                "function f$g(y, x) {\n" +
+                "return f$g$h(1, x, y);\n" +
+                "}\n", transform(streamed, code));
+    }
+
+    @Test
+    public void generatedPrograms() throws ScriptException {
+        for (int seed = 0; seed < 30; ++seed) {
+            String code = new WorkloadGenerator(seed).generateUnits(3);
+            String output = transform(streamed, code);
+            assertEquals(transform(buffered, code).length(), output.length());
+            assertEquals(run(code), run(output));
+        }
+    }
+}
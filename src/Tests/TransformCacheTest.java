@@ -0,0 +1,116 @@
+package Tests;
+
+import main.DestructuringAssignmentTransformer;
+import main.TransformCache;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+
+public class TransformCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file(String name, String content) throws Exception {
+        Path path = folder.getRoot().toPath().resolve(name);
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    @Test
+    public void restoresStoredOutput() throws Exception {
+        TransformCache cache = new TransformCache(folder.newFolder("cache").toPath(), 1024);
+        String key = TransformCache.key("var a = 1;".getBytes(StandardCharsets.UTF_8), "1");
+        Path target = folder.getRoot().toPath().resolve("target.js");
+        assertFalse(cache.restore(key, target));
+        cache.store(key, file("out.js", "var a = 1;\n"));
+        assertTrue(cache.restore(key, target));
+        assertEquals("var a = 1;\n", new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+        //restored output replaces the old one and leaves no temporary file
+        Files.write(target, "old".getBytes(StandardCharsets.UTF_8));
+        assertTrue(cache.restore(key, target));
+        assertEquals("var a = 1;\n", new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+        try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+            assertEquals(0, files.filter((file) -> file.toString().endsWith(".tmp")).count());
+        }
+    }
+
+    @Test
+    public void failedTransformationKeepsOldOutput() throws Exception {
+        Path input = file("in.js", "var a = 1;\n");
+        Path outputDirectory = folder.newFolder("out").toPath();
+        Path output = outputDirectory.resolve("in.js");
+        assertTrue(DestructuringAssignmentTransformer.transformFile(input.toString(), output.toString()));
+        Files.write(input, "var b = 2;\nif (b) {\n}\n".getBytes(StandardCharsets.UTF_8));
+        assertFalse(DestructuringAssignmentTransformer.transformFile(input.toString(), output.toString()));
+        assertEquals("var a = 1;\n", new String(Files.readAllBytes(output), StandardCharsets.UTF_8));
+        try (Stream<Path> entries = Files.list(outputDirectory)) {
+            assertEquals(1, entries.count());
+        }
+    }
+
+    @Test
+    public void transformsMappedFile() throws Exception {
+        Path cacheDirectory = folder.newFolder("cache").toPath();
+        TransformCache cache = new TransformCache(cacheDirectory, 1024 * 1024);
+        Path input = file("in.js", "var \u0437\u043d\u0430\u0447\u0435\u043d\u0438\u0435 = 1;\n");
+        Path output = folder.getRoot().toPath().resolve("out").resolve("in.js");
+        for (int i = 0; i < 2; ++i) {
+            assertTrue(DestructuringAssignmentTransformer.transformFile(input.toString(), output.toString(), cache));
+            assertEquals("var \u0437\u043d\u0430\u0447\u0435\u043d\u0438\u0435 = 1;\n",
+                    new String(Files.readAllBytes(output), StandardCharsets.UTF_8));
+        }
+        try (FileChannel channel = FileChannel.open(input)) {
+            String key = TransformCache.key(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), "1");
+            assertEquals(TransformCache.key(Files.readAllBytes(input), "1"), key);
+        }
+        //output and analyzed unit
+        try (Stream<Path> entries = Files.list(cacheDirectory)) {
+            assertEquals(2, entries.count());
+        }
+    }
+
+    @Test
+    public void keyDependsOnVersion() {
+        byte[] content = "var a = 1;".getBytes(StandardCharsets.UTF_8);
+        assertNotEquals(TransformCache.key(content, "1"), TransformCache.key(content, "2"));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() throws Exception {
+        Path directory = folder.newFolder("cache").toPath();
+        TransformCache cache = new TransformCache(directory, 20);
+        Path target = folder.getRoot().toPath().resolve("target.js");
+        cache.store("first", file("first.js", "0123456789"));
+        cache.store("second", file("second.js", "0123456789"));
+        assertTrue(cache.restore("first", target));
+        cache.store("third", file("third.js", "0123456789"));
+        assertTrue(cache.restore("first", target));
+        assertFalse(cache.restore("second", target));
+        assertTrue(cache.restore("third", target));
+
+        TransformCache reopened = new TransformCache(directory, 20);
+        assertTrue(reopened.restore("third", target));
+    }
+
+    @Test
+    public void deletesStaleTemporaryFilesOnOpen() throws Exception {
+        Path directory = folder.newFolder("cache").toPath();
+        Path stale = Files.write(directory.resolve("stale.tmp"), new byte[]{1});
+        Files.setLastModifiedTime(stale, FileTime.fromMillis(System.currentTimeMillis() - 60 * 60 * 1000));
+        Path fresh = Files.write(directory.resolve("fresh.tmp"), new byte[]{1});
+        new TransformCache(directory, 1024);
+        assertFalse(Files.exists(stale));
+        //may be written by other process right now
+        assertTrue(Files.exists(fresh));
+    }
+}
@@ -0,0 +1,176 @@
+package Tests;
+
+import main.SourceMap;
+import main.TransformClient;
+import main.TransformResult;
+import main.TransformServer;
+import main.Transformer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+
+public class TransformServerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static class Response {
+        private int status;
+        private String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private Response post(TransformServer server, String code) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort()
+                + TransformServer.TRANSFORM_PATH + "?name=test.js").openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream body = connection.getOutputStream()) {
+            body.write(code.getBytes(StandardCharsets.UTF_8));
+        }
+        int status = connection.getResponseCode();
+        try (InputStream body = status == 200 ? connection.getInputStream() : connection.getErrorStream()) {
+            return new Response(status, body == null ? "" : new String(body.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void transformsPostedSource() throws Exception {
+        try (TransformServer server = new TransformServer(new Transformer(), 0, 2, 4)) {
+            server.start();
+            Response response = post(server, "var a = 1;\n");
+            assertEquals(200, response.status);
+            assertEquals("var a = 1;\n", response.body);
+            Response failure = post(server, "if (a) {\n}\n");
+            assertEquals(422, failure.status);
+            assertTrue(failure.body, failure.body.startsWith("test.js: "));
+        }
+    }
+
+    @Test
+    public void clientWritesOutputFile() throws Exception {
+        try (TransformServer server = new TransformServer(new Transformer(), 0, 1, 4)) {
+            server.start();
+            Path input = folder.getRoot().toPath().resolve("in.js");
+            Files.write(input, "var \u0437 = 1;\n".getBytes(StandardCharsets.UTF_8));
+            Path output = folder.getRoot().toPath().resolve("out").resolve("in.js");
+            assertTrue(TransformClient.transformFile(server.getPort(), input.toString(), output.toString()));
+            assertEquals("var \u0437 = 1;\n", new String(Files.readAllBytes(output), StandardCharsets.UTF_8));
+        }
+    }
+
+    //the only worker is blocked by the first request until release
+    private Transformer blocked(CountDownLatch started, CountDownLatch release) {
+        return new Transformer() {
+            @Override
+            public TransformResult transform(String sourceName, CharSequence source, Appendable output,
+                                             SourceMap sourceMap) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.transform(sourceName, source, output, sourceMap);
+            }
+        };
+    }
+
+    @Test
+    public void refusesRequestsWhenQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService clients = Executors.newCachedThreadPool();
+        //request being transformed counts against capacity
+        try (TransformServer server = new TransformServer(blocked(started, release), 0, 1, 2)) {
+            server.start();
+            Future<Response> first = clients.submit(() -> post(server, "var a = 1;\n"));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            //one of them is queued, the other one finds the queue full and is answered at once
+            CompletionService<Response> others = new ExecutorCompletionService<>(clients);
+            others.submit(() -> post(server, "var b = 2;\n"));
+            others.submit(() -> post(server, "var c = 3;\n"));
+            assertEquals(503, others.take().get().status);
+            release.countDown();
+            assertEquals("var a = 1;\n", first.get(10, TimeUnit.SECONDS).body);
+            assertEquals(200, others.take().get().status);
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    @Test
+    public void answersQueuedRequestsOnClose() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService clients = Executors.newCachedThreadPool();
+        try {
+            Future<Response> queued;
+            TransformServer server = new TransformServer(blocked(started, release), 0, 1, 2);
+            try {
+                server.start();
+                clients.submit(() -> post(server, "var a = 1;\n"));
+                assertTrue(started.await(10, TimeUnit.SECONDS));
+                queued = clients.submit(() -> post(server, "var b = 2;\n"));
+                //queued request has to reach the server before it's closed
+                Thread.sleep(500);
+            } finally {
+                //request being transformed is still blocked, but queued one is answered
+                server.close();
+            }
+            assertEquals(500, queued.get(10, TimeUnit.SECONDS).status);
+        } finally {
+            release.countDown();
+            clients.shutdownNow();
+        }
+    }
+
+    @Test
+    public void workerSurvivesErrorOfTransformation() throws Exception {
+        Transformer overflowing = new Transformer() {
+            @Override
+            public TransformResult transform(String sourceName, CharSequence source, Appendable output,
+                                             SourceMap sourceMap) {
+                if (source.toString().startsWith("((")) {
+                    throw new StackOverflowError();
+                }
+                return super.transform(sourceName, source, output, sourceMap);
+            }
+        };
+        try (TransformServer server = new TransformServer(overflowing, 0, 1, 2)) {
+            server.start();
+            Response failure = post(server, "((a));\n");
+            assertEquals(500, failure.status);
+            assertTrue(failure.body, failure.body.contains("StackOverflowError"));
+            assertEquals(200, post(server, "var a = 1;\n").status);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void needsWorkers() throws Exception {
+        new TransformServer(new Transformer(), 0, 0, 2).close();
+    }
+
+    @Test
+    public void retriesAfterDefaultDelayIfHeaderIsntSeconds() {
+        assertEquals(3, TransformClient.getRetryDelay("3"));
+        assertEquals(1, TransformClient.getRetryDelay("Wed, 21 Oct 2026 07:28:00 GMT"));
+        assertEquals(1, TransformClient.getRetryDelay("-2"));
+        assertEquals(1, TransformClient.getRetryDelay(null));
+    }
+}
@@ -0,0 +1,170 @@
+package Tests;
+
+import main.TransformMetrics;
+import main.TransformResult;
+import main.Transformer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+
+public class TransformerTest {
+    private static final String NESTED =
+            "function f(a, b) {\n" +
+            "    var x = a * 2;\n" +
+            "    function g(y) {\n" +
+            "        return y + x;\n" +
+            "    }\n" +
+            "    return g(b);\n" +
+            "}\n";
+
+    @Test
+    public void liftsNestedFunction() {
+        TransformResult result = new Transformer().transform(NESTED);
+        assertTrue(result.isSuccess());
+        assertEquals("function f(a, b) {\n" +
+                "var x = (a) * (2);\n" +
+                "return f$g(b, x);\n" +
+                "}\n" +
+                "function f$g(y, x) {\n" +
+                "return (y) + (x);\n" +
+                "}\n", result.getOutput());
+    }
+
+    @Test
+    public void namesLiftedFunctionsByParents() {
+        String code = "function f(a) {\n" +
+                "    function g() {\n" +
+                "        return a;\n" +
+                "    }\n" +
+                "    return g();\n" +
+                "}\n" +
+                "function h(b) {\n" +
+                "    var r = g(1);\n" +
+                "    function g(c) {\n" +
+                "        return b + c;\n" +
+                "    }\n" +
+                "    return r;\n" +
+                "}\n" +
+                "var f$g = 1;\n";
+        assertEquals("function f(a) {\n" +
+                "return f$g$1(a);\n" +
+                "}\n" +
+                "function h(b) {\n" +
+                "var r = h$g(1, b);\n" +
+                "return r;\n" +
+                "}\n" +
+                "var f$g = 1;\n" +
+                "function f$g$1(a) {\n" +
+                "return a;\n" +
+                "}\n" +
+                "function h$g(c, b) {\n" +
+                "return (b) + (c);\n" +
+                "}\n", new Transformer().transform(code).getOutput());
+    }
+
+    @Test
+    public void passesVariablesOfMutuallyRecursiveSiblings() {
+        String code = "function f(a, b) {\n" +
+                "    function g(n) {\n" +
+                "        return n && h(n - 1) + a;\n" +
+                "    }\n" +
+                "    function h(n) {\n" +
+                "        return n && g(n - 1) * b;\n" +
+                "    }\n" +
+                "    return g(5);\n" +
+                "}\n" +
+                "print(f(2, 3));\n";
+        DifferentialHarness.Failure failure = new DifferentialHarness(new Transformer()).check(code);
+        assertNull(String.valueOf(failure), failure);
+    }
+
+    @Test
+    public void measuresPhases() {
+        Transformer transformer = new Transformer();
+        TransformMetrics metrics = transformer.transform(NESTED).getMetrics();
+        assertEquals(1, metrics.getLiftedFunctionsCount());
+        assertTrue(metrics.getNodesCount() > 10);
+        assertTrue(metrics.getWallNanos(TransformMetrics.Phase.PARSE) > 0);
+        transformer.transform("if (a) {\n b = 1;\n}\n");
+        assertEquals(2, transformer.getStatistics().getFilesCount());
+        assertEquals(1, transformer.getStatistics().getFailedFilesCount());
+    }
+
+    @Test
+    public void reportsUnsupportedStatement() {
+        TransformResult result = new Transformer().transform("if (a) {\n b = 1;\n}\n");
+        assertFalse(result.isSuccess());
+        assertNull(result.getOutput());
+        assertEquals(1, result.getDiagnostics().size());
+    }
+
+    @Test
+    public void reportsSyntaxError() {
+        TransformResult result = new Transformer().transform("var x = ;\n");
+        assertFalse(result.isSuccess());
+        assertEquals(1, result.getDiagnostics().get(0).getLine());
+    }
+
+    @Test
+    public void reportsFailureOfEmission() {
+        //emission of null literal fails with NullPointerException
+        TransformResult result = new Transformer().transform("var x = null;\n");
+        assertFalse(result.isSuccess());
+        assertTrue(result.getDiagnostics().toString(), result.getDiagnostics().get(0).getMessage()
+                .contains("NullPointerException"));
+    }
+
+    @Test
+    public void reportsTooDeepNesting() {
+        StringBuilder code = new StringBuilder("var x = 1");
+        for (int i = 0; i < 100000; ++i) {
+            code.append(" + 1");
+        }
+        TransformResult result = new Transformer().transform(code.append(";\n"));
+        assertFalse(result.isSuccess());
+        assertTrue(result.getDiagnostics().toString(), result.getDiagnostics().get(0).getMessage()
+                .contains("StackOverflowError"));
+    }
+
+    @Test
+    public void rejectsReferenceToFunctionWithFreeVariables() {
+        TransformResult result = new Transformer().transform("function f(a) {\n" +
+                "    function g(x) { return x + a; }\n" +
+                "    var t = g;\n" +
+                "    return t(1);\n" +
+                "}\n" +
+                "print(f(5));\n");
+        assertFalse(result.isSuccess());
+        assertTrue(result.getDiagnostics().toString(), result.getDiagnostics().get(0).getMessage()
+                .contains("reference to function g"));
+        //function without free variables is the same as value
+        assertTrue(new Transformer().transform("function f(a) {\n" +
+                "    function g(x) { return x + 1; }\n" +
+                "    var t = g;\n" +
+                "    return t(a);\n" +
+                "}\n").isSuccess());
+    }
+
+    @Test
+    public void sharedBetweenThreads() throws Exception {
+        Transformer transformer = new Transformer();
+        String expected = transformer.transform(NESTED).getOutput();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<TransformResult>> results = new ArrayList<>();
+            for (int i = 0; i < 64; ++i) {
+                results.add(executor.submit(() -> transformer.transform(NESTED)));
+            }
+            for (Future<TransformResult> result : results) {
+                assertEquals(expected, result.get().getOutput());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package Tests;
+
+import main.WatchTransformer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+
+public class WatchTransformerTest {
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private void write(Path file, String content) throws Exception {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    //changes are processed until condition holds, but not longer than timeout
+    private void awaitChanges(WatchTransformer watcher, BooleanSupplier condition) throws Exception {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            assertTrue("watcher didn't process changes in time", System.currentTimeMillis() < deadline);
+            watcher.poll(100, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Test
+    public void mirrorsChangesOfWatchedDirectory() throws Exception {
+        Path input = folder.newFolder("in").toPath();
+        Path output = folder.getRoot().toPath().resolve("out");
+        try (WatchTransformer watcher = new WatchTransformer(output, null)) {
+            watcher.addDirectory(input);
+            write(input.resolve("a.js"), "var a = 1;\n");
+            awaitChanges(watcher, () -> Files.exists(output.resolve("a.js")));
+            assertEquals("var a = 1;\n", new String(Files.readAllBytes(output.resolve("a.js")),
+                    StandardCharsets.UTF_8));
+
+            write(input.resolve("nested").resolve("b.js"), "var b = 2;\n");
+            awaitChanges(watcher, () -> Files.exists(output.resolve("nested").resolve("b.js")));
+
+            Files.delete(input.resolve("a.js"));
+            awaitChanges(watcher, () -> !Files.exists(output.resolve("a.js")));
+
+            //directory moved away gives the only event of its own deletion
+            Files.move(input.resolve("nested"), folder.getRoot().toPath().resolve("moved"));
+            awaitChanges(watcher, () -> !Files.exists(output.resolve("nested")));
+        }
+    }
+
+    @Test
+    public void keepsWatchingAfterFailedFile() throws Exception {
+        Path input = folder.newFolder("in").toPath();
+        Path output = folder.getRoot().toPath().resolve("out");
+        try (WatchTransformer watcher = new WatchTransformer(output, null)) {
+            watcher.addDirectory(input);
+            write(input.resolve("null.js"), "var x = null;\n");
+            write(input.resolve("broken.js"), "var x = ;\n");
+            watcher.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            write(input.resolve("a.js"), "var a = 1;\n");
+            awaitChanges(watcher, () -> Files.exists(output.resolve("a.js")));
+            assertFalse(Files.exists(output.resolve("broken.js")));
+        }
+    }
+}
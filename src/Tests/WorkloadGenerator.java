@@ -0,0 +1,161 @@
+package Tests;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+//deterministic generator of programs built only from statements the transformer supports,
+//nested functions never assign free variables, so lifting keeps behavior of generated program
+public class WorkloadGenerator {
+    private static final String[] BINARY_OPERATORS = {" + ", " - ", " * ", " / ", " % ", " & ", " | ", " ^ ",
+            " >> ", " >>> ", " < ", " > ", " <= ", " >= ", " == ", " != ", " === ", " !== ", " && ", " || "};
+    private static final String[] UNARY_OPERATORS = {"-", "+", "~", "!"};
+    private static final int MAX_LITERAL = 100;
+    private Random random;
+    private int nestingDepth;
+    private int siblingFunctions;
+    private int freeVariables;
+    private int chainLength;
+    private int functionsCount;
+
+    public WorkloadGenerator(long seed) {
+        random = new Random(seed);
+        nestingDepth = 2;
+        siblingFunctions = 2;
+        freeVariables = 2;
+        chainLength = 3;
+    }
+
+    //levels of functions nested into each top level function
+    public WorkloadGenerator setNestingDepth(int nestingDepth) {
+        this.nestingDepth = nestingDepth;
+        return this;
+    }
+
+    //functions declared directly in each top level function, deeper levels have one each
+    public WorkloadGenerator setSiblingFunctions(int siblingFunctions) {
+        this.siblingFunctions = siblingFunctions;
+        return this;
+    }
+
+    //variables of enclosing functions used by each nested function
+    public WorkloadGenerator setFreeVariables(int freeVariables) {
+        this.freeVariables = freeVariables;
+        return this;
+    }
+
+    //operands of binary expressions in function bodies
+    public WorkloadGenerator setChainLength(int chainLength) {
+        this.chainLength = chainLength;
+        return this;
+    }
+
+    public String generateUnits(int count) {
+        StringBuilder code = new StringBuilder();
+        for (int i = 0; i < count; ++i) {
+            unit(code);
+        }
+        return code.toString();
+    }
+
+    //units are appended until code has at least given length
+    public String generate(int minLength) {
+        StringBuilder code = new StringBuilder();
+        while (code.length() < minLength) {
+            unit(code);
+        }
+        return code.toString();
+    }
+
+    //one global variable initialized with a binary chain of given length
+    public String generateBinaryChain(int length) {
+        StringBuilder code = new StringBuilder();
+        List<String> operands = new ArrayList<>();
+        for (int i = 0; i < 3; ++i) {
+            String name = "c" + functionsCount + "_" + i;
+            code.append("var ").append(name).append(" = ").append(random.nextInt(MAX_LITERAL)).append(";\n");
+            operands.add(name);
+        }
+        String chain = "chain" + functionsCount++;
+        code.append("var ").append(chain).append(" = ");
+        chain(code, operands, length, 0);
+        code.append(";\nprint(").append(chain).append(");\n");
+        return code.toString();
+    }
+
+    private void unit(StringBuilder code) {
+        String global = "g" + functionsCount;
+        code.append("var ").append(global).append(" = ").append(random.nextInt(MAX_LITERAL)).append(";\n");
+        String name = "f" + functionsCount++;
+        int parametersCount = function(code, name, 0, Collections.singletonList(global));
+        code.append("print(").append(name).append("(");
+        for (int i = 0; i < parametersCount; ++i) {
+            code.append(i > 0 ? ", " : "").append(random.nextInt(MAX_LITERAL));
+        }
+        code.append("));\n");
+    }
+
+    //returns count of parameters of generated function
+    private int function(StringBuilder code, String name, int depth, List<String> outerVariables) {
+        List<String> ownVariables = new ArrayList<>();
+        int parametersCount = 1 + random.nextInt(2);
+        code.append("function ").append(name).append("(");
+        for (int i = 0; i < parametersCount; ++i) {
+            String parameter = name + "_p" + i;
+            ownVariables.add(parameter);
+            code.append(i > 0 ? ", " : "").append(parameter);
+        }
+        code.append(") {\n");
+
+        List<String> usedVariables = new ArrayList<>(ownVariables);
+        List<String> candidates = new ArrayList<>(outerVariables);
+        Collections.shuffle(candidates, random);
+        usedVariables.addAll(candidates.subList(0, Math.min(freeVariables, candidates.size())));
+        String local = name + "_v";
+        code.append("var ").append(local).append(" = ");
+        chain(code, usedVariables, chainLength, 0);
+        code.append(";\n");
+        ownVariables.add(local);
+        usedVariables.add(local);
+
+        List<String> visibleVariables = new ArrayList<>(outerVariables);
+        visibleVariables.addAll(ownVariables);
+        int children = depth >= nestingDepth ? 0 : depth == 0 ? siblingFunctions : 1;
+        List<String> calls = new ArrayList<>();
+        for (int i = 0; i < children; ++i) {
+            String child = "f" + functionsCount++;
+            int childParametersCount = function(code, child, depth + 1, visibleVariables);
+            StringBuilder call = new StringBuilder(child).append("(");
+            for (int j = 0; j < childParametersCount; ++j) {
+                call.append(j > 0 ? ", " : "").append(ownVariables.get(random.nextInt(ownVariables.size())));
+            }
+            calls.add(call.append(")").toString());
+        }
+        calls.addAll(usedVariables);
+        code.append("return ");
+        chain(code, calls, chainLength + children, children);
+        code.append(";\n}\n");
+        return parametersCount;
+    }
+
+    //first required operands are never replaced by literals
+    private void chain(StringBuilder code, List<String> operands, int length, int required) {
+        for (int i = 0; i < length; ++i) {
+            if (i > 0) {
+                code.append(BINARY_OPERATORS[random.nextInt(BINARY_OPERATORS.length)]);
+            }
+            String operand = i < operands.size() ? operands.get(i) : operands.get(random.nextInt(operands.size()));
+            switch (i < required ? 1 + random.nextInt(5) : random.nextInt(6)) {
+                case 0:
+                    code.append(random.nextInt(MAX_LITERAL));
+                    break;
+                case 1:
+                    code.append(UNARY_OPERATORS[random.nextInt(UNARY_OPERATORS.length)]).append(operand);
+                    break;
+                default:
+                    code.append(operand);
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package Tests;
+
+import main.Transformer;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class WorkloadGeneratorTest {
+
+    @Test
+    public void sameSeedGivesSameCode() {
+        assertEquals(new WorkloadGenerator(7).generate(10_000), new WorkloadGenerator(7).generate(10_000));
+        assertNotEquals(new WorkloadGenerator(7).generate(10_000), new WorkloadGenerator(8).generate(10_000));
+    }
+
+    @Test
+    public void generatedCodeIsSupported() {
+        Transformer transformer = new Transformer();
+        for (int seed = 0; seed < 20; ++seed) {
+            WorkloadGenerator generator = new WorkloadGenerator(seed)
+                    .setNestingDepth(seed % 5)
+                    .setSiblingFunctions(seed % 4)
+                    .setFreeVariables(seed % 3);
+            assertTrue(transformer.transform(generator.generateUnits(5)).isSuccess());
+            assertTrue(transformer.transform(generator.generateBinaryChain(100)).isSuccess());
+        }
+    }
+
+    @Test
+    public void reachesRequestedLength() {
+        assertTrue(new WorkloadGenerator(1).generate(1 << 20).length() >= 1 << 20);
+    }
+}
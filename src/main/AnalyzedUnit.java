@@ -0,0 +1,205 @@
+package main;
+
+import jdk.nashorn.api.tree.CompilationUnitTree;
+import jdk.nashorn.api.tree.FunctionCallTree;
+import jdk.nashorn.api.tree.FunctionDeclarationTree;
+import jdk.nashorn.api.tree.IdentifierTree;
+import jdk.nashorn.api.tree.Tree;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+//compilation unit with its scope analysis, stored in binary image as node table,
+//so unchanged source is emitted again without parsing and analysis
+public class AnalyzedUnit {
+    private static final int MAGIC = 0x44415455;
+    //has to be increased when format or results of analysis change
+    public static final int VERSION = 2;
+    //parsed tree or view of loaded node table
+    private CompilationUnitTree unit;
+    private ScopeAnalysis analysis;
+
+    public AnalyzedUnit(CompilationUnitTree unit, ScopeAnalysis analysis) {
+        this.unit = unit;
+        this.analysis = analysis;
+    }
+
+    public CompilationUnitTree getUnit() {
+        return unit;
+    }
+
+    public ScopeAnalysis getAnalysis() {
+        return analysis;
+    }
+
+    //image is checked against length of the source it's read for
+    public static AnalyzedUnit read(ByteBuffer buffer, CharSequence source) {
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IllegalArgumentException("image of other format");
+            }
+            if (buffer.getInt() != source.length()) {
+                throw new IllegalArgumentException("image of other source");
+            }
+            NodeTable nodes = NodeTable.read(buffer, source);
+            return new AnalyzedUnit((CompilationUnitTree) nodes.getView(0), readAnalysis(buffer, nodes));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IllegalArgumentException("broken image", e);
+        }
+    }
+
+    //unit is lowered to node table only here, so transformations which don't store it never pay for that
+    public void write(OutputStream output, CharSequence source) throws IOException {
+        Map<Tree, Integer> indexes = new IdentityHashMap<>();
+        NodeTable nodes = NodeTable.lower(unit, indexes);
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(output));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(source.length());
+        nodes.write(data);
+        writeAnalysis(data, nodes, indexes);
+        data.flush();
+    }
+
+    public byte[] toByteArray(CharSequence source) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        write(output, source);
+        return output.toByteArray();
+    }
+
+    //results are stored by indexes of nodes, scopes keep only lifted names which emission needs
+    private void writeAnalysis(DataOutputStream output, NodeTable nodes, Map<Tree, Integer> indexes)
+            throws IOException {
+        Tree[] trees = new Tree[nodes.size()];
+        indexes.forEach((tree, node) -> trees[node] = tree);
+        Set<String> names = analysis.getNames();
+        NodeTable.writeVarInt(output, names.size());
+        for (String name : names) {
+            writeName(output, nodes, name);
+        }
+        List<int[]> calls = new ArrayList<>();
+        List<Integer> rewrittenStatements = new ArrayList<>();
+        List<Integer> functions = new ArrayList<>();
+        for (int node = 0; node < nodes.size(); ++node) {
+            Tree tree = trees[node];
+            if (analysis.needsRewriting(tree)) {
+                rewrittenStatements.add(node);
+            }
+            FunctionDeclarationTree function = null;
+            if (tree instanceof FunctionCallTree) {
+                function = analysis.getCalledFunction((FunctionCallTree) tree);
+            } else if (tree instanceof IdentifierTree) {
+                function = analysis.getReferredFunction((IdentifierTree) tree);
+            } else if (tree instanceof FunctionDeclarationTree) {
+                functions.add(node);
+            }
+            if (function != null) {
+                calls.add(new int[]{node, indexes.get(function)});
+            }
+        }
+        NodeTable.writeVarInt(output, functions.size());
+        for (int node : functions) {
+            FunctionDeclarationTree function = (FunctionDeclarationTree) trees[node];
+            FunctionScope scope = analysis.getScope(function);
+            FunctionDeclarationTree parent = scope.getParent().getFunction();
+            NodeTable.writeVarInt(output, node);
+            NodeTable.writeVarInt(output, parent == null ? 0 : indexes.get(parent) + 1);
+            output.writeBoolean(scope.getLiftedName() != null);
+            if (scope.getLiftedName() != null) {
+                NodeTable.writeString(output, scope.getLiftedName());
+            }
+            List<String> freeVariables = analysis.getFreeVariables(function);
+            NodeTable.writeVarInt(output, freeVariables.size());
+            for (String variable : freeVariables) {
+                writeName(output, nodes, variable);
+            }
+        }
+        List<FunctionDeclarationTree> liftedFunctions = analysis.getLiftedFunctions();
+        NodeTable.writeVarInt(output, liftedFunctions.size());
+        for (FunctionDeclarationTree function : liftedFunctions) {
+            NodeTable.writeVarInt(output, indexes.get(function));
+        }
+        NodeTable.writeVarInt(output, rewrittenStatements.size());
+        for (int node : rewrittenStatements) {
+            NodeTable.writeVarInt(output, node);
+        }
+        NodeTable.writeVarInt(output, calls.size());
+        for (int[] call : calls) {
+            NodeTable.writeVarInt(output, call[0]);
+            NodeTable.writeVarInt(output, call[1]);
+        }
+    }
+
+    private static ScopeAnalysis readAnalysis(ByteBuffer buffer, NodeTable nodes) {
+        Set<String> names = new HashSet<>();
+        for (int i = NodeTable.readVarInt(buffer); i > 0; --i) {
+            names.add(readName(buffer, nodes));
+        }
+        FunctionScope unitScope = new FunctionScope(null, null);
+        Map<FunctionDeclarationTree, FunctionScope> functionsScopes = new IdentityHashMap<>();
+        Map<FunctionDeclarationTree, List<String>> freeVariables = new IdentityHashMap<>();
+        //functions go in order of nodes, so parent is read before nested function
+        for (int i = NodeTable.readVarInt(buffer); i > 0; --i) {
+            FunctionDeclarationTree function = function(nodes, NodeTable.readVarInt(buffer));
+            int parent = NodeTable.readVarInt(buffer) - 1;
+            FunctionScope scope = new FunctionScope(parent < 0 ? unitScope
+                    : functionsScopes.get(function(nodes, parent)), function);
+            if (buffer.get() != 0) {
+                scope.setLiftedName(NodeTable.readString(buffer));
+            }
+            List<String> variables = new ArrayList<>();
+            for (int j = NodeTable.readVarInt(buffer); j > 0; --j) {
+                variables.add(readName(buffer, nodes));
+            }
+            functionsScopes.put(function, scope);
+            freeVariables.put(function, variables);
+        }
+        List<FunctionDeclarationTree> liftedFunctions = new ArrayList<>();
+        for (int i = NodeTable.readVarInt(buffer); i > 0; --i) {
+            liftedFunctions.add(function(nodes, NodeTable.readVarInt(buffer)));
+        }
+        Set<Tree> rewrittenStatements = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = NodeTable.readVarInt(buffer); i > 0; --i) {
+            rewrittenStatements.add(nodes.getView(NodeTable.readVarInt(buffer)));
+        }
+        Map<FunctionCallTree, FunctionDeclarationTree> calledFunctions = new IdentityHashMap<>();
+        Map<IdentifierTree, FunctionDeclarationTree> referredFunctions = new IdentityHashMap<>();
+        for (int i = NodeTable.readVarInt(buffer); i > 0; --i) {
+            Tree tree = nodes.getView(NodeTable.readVarInt(buffer));
+            FunctionDeclarationTree function = function(nodes, NodeTable.readVarInt(buffer));
+            if (tree instanceof FunctionCallTree) {
+                calledFunctions.put((FunctionCallTree) tree, function);
+            } else if (tree instanceof IdentifierTree) {
+                referredFunctions.put((IdentifierTree) tree, function);
+            } else {
+                throw new IllegalArgumentException("call of function by " + tree.getKind());
+            }
+        }
+        return new ScopeAnalysis(freeVariables, names, unitScope, functionsScopes, liftedFunctions,
+                rewrittenStatements, calledFunctions, referredFunctions);
+    }
+
+    //names used in source are written as their symbols
+    private static void writeName(DataOutputStream output, NodeTable nodes, String name) throws IOException {
+        int symbol = nodes.getSymbol(name);
+        NodeTable.writeVarInt(output, symbol + 1);
+        if (symbol < 0) {
+            NodeTable.writeString(output, name);
+        }
+    }
+
+    private static String readName(ByteBuffer buffer, NodeTable nodes) {
+        int symbol = NodeTable.readVarInt(buffer) - 1;
+        return symbol < 0 ? NodeTable.readString(buffer) : nodes.getSymbolName(symbol);
+    }
+
+    private static FunctionDeclarationTree function(NodeTable nodes, int node) {
+        Tree tree = nodes.getView(node);
+        if (!(tree instanceof FunctionDeclarationTree)) {
+            throw new IllegalArgumentException("node " + node + " isn't function");
+        }
+        return (FunctionDeclarationTree) tree;
+    }
+}
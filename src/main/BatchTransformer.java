@@ -0,0 +1,168 @@
+package main;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+//transforms many files at once, mirroring the input trees into the output root
+public class BatchTransformer {
+    private static final String JS_EXTENSION = ".js";
+    private static final String MANIFEST_PREFIX = "@";
+    private Path outputRoot;
+    private Map<Path, Path> inputsByOutput;
+    private AtomicInteger failedFiles;
+    //inputs which aren't transformed because other input is written to the same output
+    private int collidedFiles;
+    private TransformCache cache;
+
+    public BatchTransformer(Path outputRoot) {
+        this.outputRoot = outputRoot;
+        inputsByOutput = new LinkedHashMap<>();
+        failedFiles = new AtomicInteger();
+    }
+
+    public void setCache(TransformCache cache) {
+        this.cache = cache;
+    }
+
+    //input is a file, a directory, a glob pattern or @manifest with one input per line
+    public void addInput(String input) throws IOException {
+        if (input.startsWith(MANIFEST_PREFIX)) {
+            addManifest(Paths.get(input.substring(MANIFEST_PREFIX.length())));
+        } else if (isGlob(input)) {
+            addGlob(input);
+        } else {
+            Path path = Paths.get(input);
+            if (Files.isDirectory(path)) {
+                addDirectory(path);
+            } else {
+                addFile(path, path.getFileName());
+            }
+        }
+    }
+
+    //returns count of files which weren't transformed, collided inputs are counted as failed
+    public int run() {
+        List<Path> outputs = new ArrayList<>(inputsByOutput.keySet());
+        int total = outputs.size() + collidedFiles;
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            pool.invoke(new TransformTask(outputs, 0, outputs.size()));
+        } finally {
+            pool.shutdown();
+        }
+        System.out.println("transformed " + (total - failedFiles.get()) + " of " + total + " files");
+        return failedFiles.get();
+    }
+
+    private void addManifest(Path manifest) throws IOException {
+        Path base = manifest.toAbsolutePath().getParent();
+        for (String line : Files.readAllLines(manifest)) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                addInput(Paths.get(line).isAbsolute() ? line : base.resolve(line).toString());
+            }
+        }
+    }
+
+    private void addDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (isScript(file)) {
+                    addFile(file, directory.relativize(file));
+                }
+            }
+        }
+    }
+
+    //files are mirrored relative to the longest part of pattern without wildcards
+    private void addGlob(String pattern) throws IOException {
+        Path base = Paths.get(pattern).getRoot();
+        for (Path part : Paths.get(pattern)) {
+            if (isGlob(part.toString())) {
+                break;
+            }
+            base = base == null ? part : base.resolve(part);
+        }
+        if (base == null) {
+            base = Paths.get("");
+        }
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        Path directory = base.toString().isEmpty() ? Paths.get(".") : base;
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Path relative = directory.relativize(file);
+                if (Files.isRegularFile(file) && matcher.matches(base.resolve(relative))) {
+                    addFile(file, relative);
+                }
+            }
+        }
+    }
+
+    //the same file given twice is transformed once, other input of the same output is reported as failure
+    private void addFile(Path input, Path relativeOutput) {
+        Path output = outputRoot.resolve(relativeOutput.toString());
+        Path previous = inputsByOutput.putIfAbsent(output, input);
+        if (previous != null && !previous.toAbsolutePath().normalize().equals(input.toAbsolutePath().normalize())) {
+            System.err.println(input + ": output " + output + " is already written for " + previous);
+            ++collidedFiles;
+            failedFiles.incrementAndGet();
+        }
+    }
+
+    private boolean isScript(Path file) {
+        return Files.isRegularFile(file) && file.getFileName().toString().endsWith(JS_EXTENSION);
+    }
+
+    private boolean isGlob(String path) {
+        for (char c : "*?[{".toCharArray()) {
+            if (path.indexOf(c) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void transform(Path output) {
+        Path input = inputsByOutput.get(output);
+        try {
+            if (!DestructuringAssignmentTransformer.transformFile(input.toString(), output.toString(), cache)) {
+                failedFiles.incrementAndGet();
+            }
+        } catch (RuntimeException | StackOverflowError e) {
+            //one broken or too deeply nested input doesn't stop the others
+            System.err.println(input + ": " + e);
+            failedFiles.incrementAndGet();
+        }
+    }
+
+    //files are split in halves, so idle workers steal big ranges of files
+    @SuppressWarnings("serial") //task is never serialized
+    private class TransformTask extends RecursiveAction {
+        private List<Path> outputs;
+        private int from;
+        private int to;
+
+        TransformTask(List<Path> outputs, int from, int to) {
+            this.outputs = outputs;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (from < to) {
+                    transform(outputs.get(from));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new TransformTask(outputs, from, middle), new TransformTask(outputs, middle, to));
+        }
+    }
+}
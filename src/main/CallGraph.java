@@ -0,0 +1,139 @@
+package main;
+
+import jdk.nashorn.api.tree.FunctionDeclarationTree;
+
+import java.util.*;
+
+//edges go from function to lifted functions it calls and to functions nested into it,
+//caller has to pass free variables of callee which it doesn't declare, so they are
+//propagated over strongly connected components from callees to callers in linear time
+public class CallGraph {
+    private List<FunctionDeclarationTree> functions;
+    private Map<FunctionDeclarationTree, Integer> ids;
+    private Map<FunctionDeclarationTree, List<FunctionDeclarationTree>> callees;
+
+    public CallGraph() {
+        functions = new ArrayList<>();
+        ids = new IdentityHashMap<>();
+        callees = new IdentityHashMap<>();
+    }
+
+    public void addFunction(FunctionDeclarationTree function) {
+        ids.put(function, functions.size());
+        functions.add(function);
+    }
+
+    //callee may be added after the edge, declarations are hoisted
+    public void addEdge(FunctionDeclarationTree caller, FunctionDeclarationTree callee) {
+        callees.computeIfAbsent(caller, (function) -> new ArrayList<>()).add(callee);
+    }
+
+    //strongly connected components found by tarjan's algorithm without recursion,
+    //callees go before their callers
+    public List<List<FunctionDeclarationTree>> getComponents() {
+        int count = functions.size();
+        int[] index = new int[count];
+        int[] lowLink = new int[count];
+        int[] nextEdge = new int[count];
+        boolean[] isOnStack = new boolean[count];
+        int[] stack = new int[count];
+        int stackSize = 0;
+        int[] path = new int[count];
+        int depth = 0;
+        int counter = 0;
+        Arrays.fill(index, -1);
+        List<List<FunctionDeclarationTree>> result = new ArrayList<>();
+        for (int root = 0; root < count; ++root) {
+            if (index[root] >= 0) {
+                continue;
+            }
+            index[root] = lowLink[root] = counter++;
+            stack[stackSize++] = root;
+            isOnStack[root] = true;
+            path[depth++] = root;
+            while (depth > 0) {
+                int function = path[depth - 1];
+                List<FunctionDeclarationTree> edges = getCallees(functions.get(function));
+                if (nextEdge[function] < edges.size()) {
+                    int callee = ids.get(edges.get(nextEdge[function]++));
+                    if (index[callee] < 0) {
+                        index[callee] = lowLink[callee] = counter++;
+                        stack[stackSize++] = callee;
+                        isOnStack[callee] = true;
+                        path[depth++] = callee;
+                    } else if (isOnStack[callee]) {
+                        lowLink[function] = Math.min(lowLink[function], index[callee]);
+                    }
+                    continue;
+                }
+                depth--;
+                if (depth > 0) {
+                    int caller = path[depth - 1];
+                    lowLink[caller] = Math.min(lowLink[caller], lowLink[function]);
+                }
+                if (lowLink[function] == index[function]) {
+                    List<FunctionDeclarationTree> component = new ArrayList<>();
+                    int member;
+                    do {
+                        member = stack[--stackSize];
+                        isOnStack[member] = false;
+                        component.add(functions.get(member));
+                    } while (member != function);
+                    result.add(component);
+                }
+            }
+        }
+        return result;
+    }
+
+    //free variables of callees which caller doesn't declare are appended to its free variables,
+    //inside of component they are propagated by worklist until nothing changes
+    public void propagate(Map<FunctionDeclarationTree, List<String>> freeVariables,
+                          Map<FunctionDeclarationTree, Set<String>> ownNames) {
+        Map<FunctionDeclarationTree, Set<String>> passedVariables = new IdentityHashMap<>();
+        for (List<FunctionDeclarationTree> component : getComponents()) {
+            Map<FunctionDeclarationTree, List<FunctionDeclarationTree>> callers = new IdentityHashMap<>();
+            if (component.size() > 1) {
+                Set<FunctionDeclarationTree> members = Collections.newSetFromMap(new IdentityHashMap<>());
+                members.addAll(component);
+                for (FunctionDeclarationTree caller : component) {
+                    for (FunctionDeclarationTree callee : getCallees(caller)) {
+                        if (members.contains(callee)) {
+                            callers.computeIfAbsent(callee, (function) -> new ArrayList<>()).add(caller);
+                        }
+                    }
+                }
+            }
+            Deque<FunctionDeclarationTree> worklist = new ArrayDeque<>(component);
+            Set<FunctionDeclarationTree> queued = Collections.newSetFromMap(new IdentityHashMap<>());
+            queued.addAll(component);
+            while (!worklist.isEmpty()) {
+                FunctionDeclarationTree caller = worklist.poll();
+                queued.remove(caller);
+                List<String> variables = freeVariables.get(caller);
+                Set<String> passed = passedVariables.computeIfAbsent(caller, (function) -> new HashSet<>(variables));
+                Set<String> own = ownNames.getOrDefault(caller, Collections.emptySet());
+                boolean isChanged = false;
+                for (FunctionDeclarationTree callee : getCallees(caller)) {
+                    for (String variable : freeVariables.getOrDefault(callee, Collections.emptyList())) {
+                        if (!own.contains(variable) && passed.add(variable)) {
+                            variables.add(variable);
+                            isChanged = true;
+                        }
+                    }
+                }
+                if (isChanged) {
+                    for (FunctionDeclarationTree member : callers.getOrDefault(caller, Collections.emptyList())) {
+                        if (queued.add(member)) {
+                            worklist.add(member);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private List<FunctionDeclarationTree> getCallees(FunctionDeclarationTree function) {
+        return callees.getOrDefault(function, Collections.emptyList());
+    }
+}
@@ -2,56 +2,99 @@ package main;
 
 import jdk.nashorn.api.tree.*;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 public class CollectorIdentifiersVisitor extends SimpleTreeVisitorES6<Void, Pair> {
-    private List<Set<String>> ownVariables;
-    private Set<String> putedVariables;
+    private ScopeChain scopeChain;
+    private Set<ScopeChain.Binding> putedVariables;
+    private Map<FunctionDeclarationTree, List<String>> freeVariables;
+    private FunctionScope unitScope;
+    private FunctionScope functionScope;
+    private Map<FunctionDeclarationTree, FunctionScope> functionsScopes;
+    private List<FunctionDeclarationTree> liftedFunctions;
+    //hoisted functions which aren't declared at top level, calls may precede their declarations
+    private Set<FunctionDeclarationTree> nestedFunctions;
+    //number of places found so far which output differently from source
+    private int rewrites;
+    private Set<Tree> rewrittenStatements;
+    private CallGraph callGraph;
+    //names declared in every function, free variables of callees with these names aren't passed
+    private Map<FunctionDeclarationTree, Set<String>> ownNames;
+    //lifted functions called by calls and referred by identifiers
+    private Map<FunctionCallTree, FunctionDeclarationTree> calledFunctions;
+    private Map<IdentifierTree, FunctionDeclarationTree> referredFunctions;
     CollectorIdentifiersVisitor() {
         super();
-        ownVariables = new ArrayList<>();
+        scopeChain = new ScopeChain();
         putedVariables = new HashSet<>();
-        ownVariables.add(new HashSet<>());
+        freeVariables = new IdentityHashMap<>();
+        unitScope = new FunctionScope(null, null);
+        functionScope = unitScope;
+        functionsScopes = new IdentityHashMap<>();
+        liftedFunctions = new ArrayList<>();
+        nestedFunctions = Collections.newSetFromMap(new IdentityHashMap<>());
+        rewrittenStatements = Collections.newSetFromMap(new IdentityHashMap<>());
+        callGraph = new CallGraph();
+        ownNames = new IdentityHashMap<>();
+        calledFunctions = new IdentityHashMap<>();
+        referredFunctions = new IdentityHashMap<>();
+    }
+
+    //collect free variables and scopes of every function in one walk over the compilation unit
+    public static ScopeAnalysis analyze(CompilationUnitTree node) {
+        CollectorIdentifiersVisitor collector = new CollectorIdentifiersVisitor();
+        collector.hoist(node.getSourceElements());
+        node.accept(collector, new Pair(new ArrayList<>(), false));
+        collector.nameLiftedFunctions();
+        collector.callGraph.propagate(collector.freeVariables, collector.ownNames);
+        return new ScopeAnalysis(collector.freeVariables, collector.scopeChain.getNames(), collector.unitScope,
+                collector.functionsScopes, collector.liftedFunctions, collector.rewrittenStatements,
+                collector.calledFunctions, collector.referredFunctions);
+    }
+
+    @Override
+    public Void visitCompilationUnit(CompilationUnitTree node, Pair r) {
+        node.getSourceElements().forEach((tree) -> {
+            visitStatement(tree, r);
+        });
+        return null;
     }
 
     @Override
     public Void visitVariable(VariableTree node, Pair r) {
         node.getBinding().accept(this, new Pair(r.getVariables(), true));
-        node.getInitializer().accept(this, r);
+        if (node.getInitializer() != null) {
+            node.getInitializer().accept(this, r);
+        }
         return null;
     }
 
     @Override
     public Void visitIdentifier(IdentifierTree node, Pair r) {
-        String name = node.getName();
+        ScopeChain.Binding binding = scopeChain.resolve(node.getName());
+        FunctionDeclarationTree function;
         if (r.getFromVariableTree()) {
-            ownVariables.get(ownVariables.size() - 1).add(name);
-        } else if (!putedVariables.contains(name)){
-            boolean isInternalVariable = false;
-            for (Set set : ownVariables) {
-                if (set.contains(name)) {
-                    isInternalVariable = true;
-                    break;
-                }
-            }
-            if (!isInternalVariable) {
-                r.getVariables().add(name);
-                putedVariables.add(name);
+            scopeChain.declare(binding);
+            if (functionScope.getFunction() != null) {
+                ownNames.get(functionScope.getFunction()).add(binding.getName());
             }
+        } else if (isLifted(function = scopeChain.resolveFunction(binding))) {
+            //lifted functions are reachable from everywhere by their new names
+            referredFunctions.put(node, function);
+            rewrites++;
+        } else {
+            addUsedVariable(binding, r.getVariables());
         }
         return null;
     }
 
     @Override
     public Void visitBlock(BlockTree node, Pair r) {
-        ownVariables.add(new HashSet<>());
+        scopeChain.enterBlock();
         node.getStatements().forEach((tree) -> {
-            tree.accept(this, r);
+            visitStatement(tree, r);
         });
-        ownVariables.remove(ownVariables.size() - 1);
+        scopeChain.exitBlock();
         return null;
     }
 
@@ -59,6 +102,19 @@ public class CollectorIdentifiersVisitor extends SimpleTreeVisitorES6<Void, Pair
     //pass function name identifier
     @Override
     public Void visitFunctionCall(FunctionCallTree node, Pair r) {
+        if (node.getFunctionSelect() instanceof IdentifierTree) {
+            FunctionDeclarationTree function = scopeChain.resolveFunction(
+                    scopeChain.resolve(((IdentifierTree) node.getFunctionSelect()).getName()));
+            if (isLifted(function)) {
+                //lifted function gets new name and free variables as arguments
+                calledFunctions.put(node, function);
+                referredFunctions.put((IdentifierTree) node.getFunctionSelect(), function);
+                if (functionScope.getFunction() != null) {
+                    callGraph.addEdge(functionScope.getFunction(), function);
+                }
+                rewrites++;
+            }
+        }
         node.getArguments().forEach((tree) -> {
             tree.accept(this, r);
         });
@@ -67,10 +123,104 @@ public class CollectorIdentifiersVisitor extends SimpleTreeVisitorES6<Void, Pair
 
     @Override
     public Void visitFunctionDeclaration(FunctionDeclarationTree node, Pair r) {
+        Set<ScopeChain.Binding> parentPutedVariables = putedVariables;
+        putedVariables = new HashSet<>();
+        scopeChain.intern(node.getName().getName());
+        scopeChain.enterFunction();
+        FunctionScope parentScope = functionScope;
+        functionScope = new FunctionScope(parentScope, node);
+        functionsScopes.put(node, functionScope);
+        callGraph.addFunction(node);
+        ownNames.put(node, new HashSet<>());
+        if (parentScope != unitScope) {
+            liftedFunctions.add(node);
+            //parent passes free variables of nested function to it
+            callGraph.addEdge(parentScope.getFunction(), node);
+            rewrites++;
+        }
+        for (ExpressionTree parameter : node.getParameters()) {
+            if (parameter instanceof IdentifierTree) {
+                scopeChain.declare(scopeChain.resolve(((IdentifierTree) parameter).getName()));
+            }
+        }
+        hoist(node.getBody().getStatements());
+
+        List<String> functionVariables = new ArrayList<>();
         node.getParameters().forEach((tree) -> {
-            tree.accept(this, new Pair(r.getVariables(), true));
+            tree.accept(this, new Pair(functionVariables, true));
         });
-        node.getBody().accept(this, r);
+        node.getBody().accept(this, new Pair(functionVariables, false));
+        freeVariables.put(node, functionVariables);
+
+        functionScope = parentScope;
+        scopeChain.exitFunction();
+        putedVariables = parentPutedVariables;
+        //parent has to pass free variables of nested function, unless they are its own
+        functionVariables.forEach((name) -> addUsedVariable(scopeChain.resolve(name), r.getVariables()));
         return null;
     }
-}
\ No newline at end of file
+
+    //statement is rewritten if any its part is
+    private void visitStatement(Tree statement, Pair r) {
+        int statementRewrites = rewrites;
+        statement.accept(this, r);
+        if (rewrites != statementRewrites) {
+            rewrittenStatements.add(statement);
+        }
+    }
+
+    //declares functions and variables of the statements in the first block of the current function,
+    //they are own names of the function before the body is visited, so uses preceding declarations aren't free
+    private void hoist(List<? extends Tree> statements) {
+        for (Tree statement : statements) {
+            if (statement instanceof FunctionDeclarationTree) {
+                FunctionDeclarationTree function = (FunctionDeclarationTree) statement;
+                scopeChain.declareFunction(declareHoisted(function.getName().getName()), function);
+                if (functionScope != unitScope) {
+                    nestedFunctions.add(function);
+                }
+            } else if (statement instanceof VariableTree
+                    && ((VariableTree) statement).getBinding() instanceof IdentifierTree) {
+                scopeChain.declare(declareHoisted(((IdentifierTree) ((VariableTree) statement).getBinding())
+                        .getName()));
+            } else if (statement instanceof BlockTree) {
+                hoist(((BlockTree) statement).getStatements());
+            }
+        }
+    }
+
+    private ScopeChain.Binding declareHoisted(String name) {
+        ScopeChain.Binding binding = scopeChain.resolve(name);
+        if (functionScope.getFunction() != null) {
+            ownNames.get(functionScope.getFunction()).add(binding.getName());
+        }
+        return binding;
+    }
+
+    private boolean isLifted(FunctionDeclarationTree function) {
+        return function != null && nestedFunctions.contains(function);
+    }
+
+    //lifted function is named after its parents, suffix is added if such name is already used
+    private void nameLiftedFunctions() {
+        Set<String> usedNames = new HashSet<>(scopeChain.getNames());
+        for (FunctionDeclarationTree function : liftedFunctions) {
+            FunctionScope scope = functionsScopes.get(function);
+            FunctionScope parentScope = scope.getParent();
+            String parentName = parentScope.getLiftedName() != null
+                    ? parentScope.getLiftedName() : parentScope.getFunction().getName().getName();
+            String name = parentName + "$" + function.getName().getName();
+            String uniqueName = name;
+            for (int i = 1; !usedNames.add(uniqueName); ++i) {
+                uniqueName = name + "$" + i;
+            }
+            scope.setLiftedName(uniqueName);
+        }
+    }
+
+    private void addUsedVariable(ScopeChain.Binding binding, List<String> variables) {
+        if (!scopeChain.isOwn(binding) && putedVariables.add(binding)) {
+            variables.add(binding.getName());
+        }
+    }
+}
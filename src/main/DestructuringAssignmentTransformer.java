@@ -1,23 +1,92 @@
 package main;
 
-import jdk.nashorn.api.scripting.NashornException;
-import jdk.nashorn.api.tree.*;
-
+import javax.management.JMException;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
 
 
 public class DestructuringAssignmentTransformer {
+    private static final String BATCH_OPTION = "--batch";
+    private static final String WATCH_OPTION = "--watch";
+    private static final String DAEMON_OPTION = "--daemon";
+    private static final String PORT_OPTION = "--port";
+    private static final String WORKERS_OPTION = "--workers";
+    private static final String QUEUE_OPTION = "--queue";
+    private static final int DEFAULT_CAPACITY = 256;
+    private static final String CACHE_OPTION = "--cache";
+    private static final String CACHE_SIZE_OPTION = "--cache-size";
+    private static final String METRICS_OPTION = "--metrics";
+    private static final long DEFAULT_CACHE_SIZE = 256L * 1024 * 1024;
+    private static final int MIN_BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_BUFFER_SIZE = 1024 * 1024;
+    private static final String MINIMAL_PARENTHESES_OPTION = "--minimal-parentheses";
+    private static final String COMPACT_OPTION = "--compact";
+    private static final String SHORTEN_PARAMETERS_OPTION = "--shorten-parameters";
+    private static final String SOURCE_MAP_OPTION = "--source-map";
+    private static final String STREAM_LIFTED_OPTION = "--stream-lifted";
+    private static final String PARALLEL_EMISSION_OPTION = "--parallel-emission";
+    private static final String COPY_UNCHANGED_OPTION = "--copy-unchanged";
+    private static final String RECOVERABLE_OPTION = "--recoverable";
+    private static final String REPORT_OPTION = "--report";
+    private static final String SOURCE_MAP_EXTENSION = ".map";
+    private static final String TEMP_EXTENSION = ".tmp";
+    private static final String UNIT_VERSION = "unit " + Transformer.VERSION + " " + AnalyzedUnit.VERSION;
+    private static Transformer transformer = new Transformer();
+    private static boolean printMetrics;
+    private static boolean writeSourceMaps;
+    private static TransformReport report;
 
     public static void main(String[] args) throws Exception {
+        if (args != null) {
+            args = parseOutputOptions(args);
+        }
+        try {
+            run(args);
+        } finally {
+            if (report != null) {
+                report.close();
+            }
+        }
+    }
+
+    private static void run(String[] args) throws IOException, InterruptedException {
+        if (args != null && args.length > 0 && (BATCH_OPTION.equals(args[0]) || WATCH_OPTION.equals(args[0]))) {
+            transformTrees(args);
+            return;
+        }
+        if (args != null && args.length > 0 && DAEMON_OPTION.equals(args[0])) {
+            serve(args);
+            return;
+        }
         if (args == null) {
             System.err.println("need 2 arguments - input and output files names, now - 0");
             return;
         } else if (args.length != 2) {
             System.err.println("need 2 arguments - input and output files names, now - " + args.length);
+            System.err.println("or " + BATCH_OPTION + " <output root> [" + CACHE_OPTION + " <directory>] ["
+                    + CACHE_SIZE_OPTION + " <megabytes>] [" + METRICS_OPTION
+                    + "] <input directory | glob | @manifest>...");
+            System.err.println("or " + WATCH_OPTION + " <output root> [" + CACHE_OPTION + " <directory>] ["
+                    + CACHE_SIZE_OPTION + " <megabytes>] [" + METRICS_OPTION + "] <input directory>...");
+            System.err.println("or " + DAEMON_OPTION + " [" + PORT_OPTION + " <port>] [" + WORKERS_OPTION
+                    + " <count>] [" + QUEUE_OPTION + " <capacity>], files are sent to it by TransformClient");
+            System.err.println("options of output in any mode: " + MINIMAL_PARENTHESES_OPTION + " "
+                    + COMPACT_OPTION + " " + SHORTEN_PARAMETERS_OPTION + " " + SOURCE_MAP_OPTION
+                    + " " + STREAM_LIFTED_OPTION + " " + PARALLEL_EMISSION_OPTION + " " + COPY_UNCHANGED_OPTION
+                    + " " + RECOVERABLE_OPTION + " " + REPORT_OPTION + " <file>");
             return;
         } else if (args[0] == null | args[1] == null) {
             System.err.println("args is null");
@@ -26,39 +95,281 @@ public class DestructuringAssignmentTransformer {
         transformFile(args[0], args[1]);
     }
 
-    public static void transformFile(String inputFile, String outputFile){
+    //removes options of output from arguments
+    private static String[] parseOutputOptions(String[] args) throws IOException {
+        TransformOptions options = new TransformOptions();
+        List<String> otherArgs = new ArrayList<>();
+        for (int i = 0; i < args.length; ++i) {
+            String arg = args[i];
+            if (MINIMAL_PARENTHESES_OPTION.equals(arg)) {
+                options.setMinimalParentheses(true);
+            } else if (COMPACT_OPTION.equals(arg)) {
+                options.setCompact(true);
+            } else if (SHORTEN_PARAMETERS_OPTION.equals(arg)) {
+                options.setShortenLiftedParameters(true);
+            } else if (COPY_UNCHANGED_OPTION.equals(arg)) {
+                options.setCopyUnchanged(true);
+            } else if (PARALLEL_EMISSION_OPTION.equals(arg)) {
+                options.setParallelEmission(true);
+            } else if (STREAM_LIFTED_OPTION.equals(arg)) {
+                options.setStreamLiftedFunctions(true);
+            } else if (RECOVERABLE_OPTION.equals(arg)) {
+                options.setRecoverable(true);
+            } else if (SOURCE_MAP_OPTION.equals(arg)) {
+                writeSourceMaps = true;
+            } else if (REPORT_OPTION.equals(arg) && i + 1 < args.length) {
+                report = new TransformReport(Paths.get(args[++i]));
+            } else {
+                otherArgs.add(arg);
+            }
+        }
+        transformer = new Transformer(options);
+        return otherArgs.toArray(new String[0]);
+    }
+
+    //server keeps running until the process is stopped
+    private static void serve(String[] args) throws IOException {
+        int port = TransformClient.DEFAULT_PORT;
+        int workers = Runtime.getRuntime().availableProcessors();
+        //requests which may be queued or transformed at once
+        int capacity = DEFAULT_CAPACITY;
+        for (int i = 1; i < args.length; ++i) {
+            if (PORT_OPTION.equals(args[i]) && i + 1 < args.length) {
+                port = Integer.parseInt(args[++i]);
+            } else if (WORKERS_OPTION.equals(args[i]) && i + 1 < args.length) {
+                workers = Integer.parseInt(args[++i]);
+            } else if (QUEUE_OPTION.equals(args[i]) && i + 1 < args.length) {
+                capacity = Integer.parseInt(args[++i]);
+            } else {
+                System.err.println("unknown option of daemon: " + args[i]);
+                return;
+            }
+        }
+        if (workers < 1 || capacity < 1) {
+            System.err.println(WORKERS_OPTION + " and " + QUEUE_OPTION + " have to be positive");
+            return;
+        }
+        TransformServer server = new TransformServer(transformer, port, workers, capacity);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        server.start();
+        System.out.println("listening on port " + server.getPort());
+    }
+
+    //in watch mode all inputs are transformed once and then only changed files
+    private static void transformTrees(String[] args) throws IOException, InterruptedException {
+        if (args.length < 3) {
+            System.err.println("need output root and at least one input after " + args[0]);
+            return;
+        }
+        Path outputRoot = Paths.get(args[1]);
+        List<String> inputs = new ArrayList<>();
+        Path cacheDirectory = null;
+        long cacheSize = DEFAULT_CACHE_SIZE;
+        for (int i = 2; i < args.length; ++i) {
+            if (CACHE_OPTION.equals(args[i]) && i + 1 < args.length) {
+                cacheDirectory = Paths.get(args[++i]);
+            } else if (CACHE_SIZE_OPTION.equals(args[i]) && i + 1 < args.length) {
+                cacheSize = Long.parseLong(args[++i]) * 1024 * 1024;
+            } else if (METRICS_OPTION.equals(args[i])) {
+                printMetrics = true;
+            } else {
+                inputs.add(args[i]);
+            }
+        }
+        try {
+            transformer.getStatistics().register();
+        } catch (JMException e) {
+            System.err.println("statistics aren't available through JMX: " + e.getMessage());
+        }
+        TransformCache cache = cacheDirectory == null ? null : new TransformCache(cacheDirectory, cacheSize);
+        BatchTransformer batch = new BatchTransformer(outputRoot);
+        batch.setCache(cache);
+        for (String input : inputs) {
+            batch.addInput(input);
+        }
+        batch.run();
+        if (printMetrics) {
+            System.out.println(transformer.getStatistics());
+        }
+        if (WATCH_OPTION.equals(args[0])) {
+            WatchTransformer watcher = new WatchTransformer(outputRoot, cache);
+            for (String input : inputs) {
+                if (Files.isDirectory(Paths.get(input))) {
+                    watcher.addDirectory(Paths.get(input));
+                } else {
+                    System.err.println("only directories can be watched: " + input);
+                }
+            }
+            System.out.println("watching for changes");
+            watcher.run();
+        }
+    }
+
+    public static boolean transformFile(String inputFile, String outputFile) {
+        return transformFile(inputFile, outputFile, null);
+    }
+
+    //returns false if file wasn't transformed, the reason is printed to System.err
+    //with cache unchanged files are copied from it without parsing
+    public static boolean transformFile(String inputFile, String outputFile, TransformCache cache) {
+        Path in;
         Path out;
         try {
+            in = Paths.get(inputFile);
             out = Paths.get(outputFile);
             if (out.getParent() != null) {
                 Files.createDirectories(out.getParent());
             }
         } catch (InvalidPathException e) {
-            System.err.println("Incorrect path to file: " + outputFile);
-            return;
+            System.err.println("Incorrect path to file: " + e.getInput());
+            return false;
         } catch (IOException e) {
             System.err.println("Error with path create: " + e.getMessage());
-            return;
+            return false;
         }
-        Parser parser = Parser.create();
-        File sourceFile = new File(inputFile);
 
-        try (BufferedWriter writer = Files.newBufferedWriter(out)) {
-            try {
-                CompilationUnitTree cut = parser.parse(sourceFile,
-                        System.err::println);
-                if (cut != null) {
-                    writer.write(cut.accept(new DestructuringAssignmentVisitor(), null).toString());
-                } else {
-                    System.err.println("cant parse given file");
+        //input is mapped, so its bytes are hashed and decoded without copying them to heap
+        try (FileChannel channel = FileChannel.open(in, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer content = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            String key = null;
+            if (cache != null) {
+                //source map refers to input by path, so it's the part of the key
+                key = TransformCache.key(content.duplicate(), writeSourceMaps
+                        ? transformer.getVersion() + " sourceMap=" + getSourcePath(in, out) : transformer.getVersion());
+                if (cache.restore(key, out)
+                        && (!writeSourceMaps || cache.restore(key + SOURCE_MAP_EXTENSION, getSourceMapPath(out)))) {
+                    if (report != null) {
+                        report.addCached(inputFile);
+                    }
+                    return true;
+                }
+            }
+            AnalyzedUnit unit = null;
+            String unitKey = null;
+            if (cache != null) {
+                //analysis doesn't depend on options, so it's reused when only they change
+                unitKey = TransformCache.key(content.duplicate(), UNIT_VERSION);
+            }
+            //decoded chars are used as they are, string is made of them only if source has to be parsed
+            CharBuffer source = StandardCharsets.UTF_8.newDecoder().decode(content);
+            Consumer<AnalyzedUnit> analyzed = null;
+            if (cache != null) {
+                unit = restoreUnit(cache, unitKey, source);
+                String storedKey = unitKey;
+                analyzed = (parsed) -> storeUnit(cache, storedKey, parsed, source);
+            }
+            boolean success = transform(inputFile, source, out, size, unit, analyzed);
+            if (success && cache != null) {
+                cache.store(key, out);
+                if (writeSourceMaps) {
+                    cache.store(key + SOURCE_MAP_EXTENSION, getSourceMapPath(out));
                 }
-            } catch (NashornException e) {
-                System.err.println("Error while parsing" + e.getMessage());
             }
+            return success;
         } catch (IOException e) {
             System.err.println("IOExcetion :" + e.getMessage());
         }
+        return false;
+    }
+
+    //null if unit isn't cached or its image is broken
+    private static AnalyzedUnit restoreUnit(TransformCache cache, String key, CharSequence source) throws IOException {
+        ByteBuffer image = cache.map(key);
+        if (image == null) {
+            return null;
+        }
+        try {
+            return AnalyzedUnit.read(image, source);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Cached analysis is ignored: " + e.getMessage());
+            return null;
+        }
+    }
+
+    //transformation doesn't fail if unit can't be cached
+    private static void storeUnit(TransformCache cache, String key, AnalyzedUnit unit, CharSequence source) {
+        try {
+            cache.store(key, unit.toByteArray(source));
+        } catch (IOException e) {
+            System.err.println("Cant cache analysis: " + e.getMessage());
+        }
+    }
+
+    //source map is written next to output file
+    public static Path getSourceMapPath(Path out) {
+        return out.resolveSibling(out.getFileName() + SOURCE_MAP_EXTENSION);
+    }
+
+    private static String getSourcePath(Path in, Path out) {
+        Path outputDirectory = out.toAbsolutePath().getParent();
+        return outputDirectory.relativize(in.toAbsolutePath()).toString().replace(File.separatorChar, '/');
+    }
+
+    //output is written to channel through buffers sized by input, mappings are streamed to source map file
+    //unit is emitted without parsing if it's given, otherwise analyzed unit is passed to consumer
+    //output and source map replace the old ones only if transformation succeeds, so it never leaves truncated files
+    private static boolean transform(String inputFile, CharSequence source, Path out, long inputSize, AnalyzedUnit unit,
+                                     Consumer<AnalyzedUnit> analyzed) throws IOException {
+        TransformResult result;
+        int bufferSize = (int) Math.max(MIN_BUFFER_SIZE, Math.min(MAX_BUFFER_SIZE, inputSize));
+        Path sourceMapPath = getSourceMapPath(out);
+        Path temp = createTempSibling(out);
+        Path sourceMapTemp = null;
+        try {
+            if (writeSourceMaps) {
+                sourceMapTemp = createTempSibling(sourceMapPath);
+            }
+            try (BufferedWriter sourceMapWriter = sourceMapTemp == null ? null
+                    : Files.newBufferedWriter(sourceMapTemp, StandardCharsets.UTF_8)) {
+                SourceMap sourceMap = sourceMapWriter == null ? null : new SourceMap(sourceMapWriter,
+                        out.getFileName().toString(), getSourcePath(Paths.get(inputFile), out));
+                try (BufferedWriter writer = new BufferedWriter(Channels.newWriter(FileChannel.open(temp,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE),
+                        StandardCharsets.UTF_8.newEncoder(), bufferSize), bufferSize)) {
+                    result = unit != null ? transformer.transform(inputFile, source, unit, writer, sourceMap)
+                            : transformer.transform(inputFile, source, writer, sourceMap, analyzed);
+                    //line breaks of output don't depend on platform
+                    if (result.isSuccess() && sourceMap != null) {
+                        if (transformer.getOptions().isCompact()) {
+                            writer.write("\n");
+                        }
+                        writer.write("//# sourceMappingURL=" + sourceMapPath.getFileName() + "\n");
+                    }
+                }
+                if (result.isSuccess() && sourceMap != null) {
+                    sourceMap.finish();
+                }
+            }
+            result.getDiagnostics().forEach(System.err::println);
+            if (report != null) {
+                report.add(inputFile, result);
+            }
+            if (printMetrics) {
+                System.out.println(inputFile + ": " + result.getMetrics());
+            }
+            if (result.isSuccess()) {
+                if (sourceMapTemp != null) {
+                    replace(sourceMapTemp, sourceMapPath);
+                }
+                replace(temp, out);
+            }
+            return result.isSuccess();
+        } finally {
+            Files.deleteIfExists(temp);
+            if (sourceMapTemp != null) {
+                Files.deleteIfExists(sourceMapTemp);
+            }
+        }
+    }
+
+    //temporary file is in the same directory, so it's moved to the file atomically
+    private static Path createTempSibling(Path file) throws IOException {
+        return Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), TEMP_EXTENSION);
+    }
+
+    private static void replace(Path temp, Path file) throws IOException {
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
     }
 
 }
- 
\ No newline at end of file
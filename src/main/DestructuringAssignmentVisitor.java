@@ -2,496 +2,1108 @@ package main;
 
 import jdk.nashorn.api.tree.*;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 
-public class DestructuringAssignmentVisitor implements TreeVisitor<StringBuilder, Boolean> {
+public class DestructuringAssignmentVisitor implements TreeVisitor<Void, Boolean> {
+    //tokens of supported operators, kinds without token aren't supported
+    private static final Map<Tree.Kind, String> BINARY_OPERATORS = new EnumMap<>(Tree.Kind.class);
+    private static final Map<Tree.Kind, String> UNARY_OPERATORS = new EnumMap<>(Tree.Kind.class);
+    static {
+        BINARY_OPERATORS.put(Tree.Kind.PLUS, " + ");
+        BINARY_OPERATORS.put(Tree.Kind.MINUS, " - ");
+        BINARY_OPERATORS.put(Tree.Kind.AND, " & ");
+        BINARY_OPERATORS.put(Tree.Kind.COMMA, " , ");
+        BINARY_OPERATORS.put(Tree.Kind.CONDITIONAL_AND, " && ");
+        BINARY_OPERATORS.put(Tree.Kind.CONDITIONAL_OR, " || ");
+        BINARY_OPERATORS.put(Tree.Kind.DIVIDE, " / ");
+        BINARY_OPERATORS.put(Tree.Kind.EQUAL_TO, " == ");
+        BINARY_OPERATORS.put(Tree.Kind.GREATER_THAN, " > ");
+        BINARY_OPERATORS.put(Tree.Kind.GREATER_THAN_EQUAL, " >= ");
+        BINARY_OPERATORS.put(Tree.Kind.IN, " in ");
+        BINARY_OPERATORS.put(Tree.Kind.LESS_THAN, " < ");
+        BINARY_OPERATORS.put(Tree.Kind.LESS_THAN_EQUAL, " <= ");
+        BINARY_OPERATORS.put(Tree.Kind.MULTIPLY, " * ");
+        BINARY_OPERATORS.put(Tree.Kind.NOT_EQUAL_TO, " != ");
+        BINARY_OPERATORS.put(Tree.Kind.OR, " | ");
+        BINARY_OPERATORS.put(Tree.Kind.REMAINDER, " % ");
+        BINARY_OPERATORS.put(Tree.Kind.RIGHT_SHIFT, " >> ");
+        BINARY_OPERATORS.put(Tree.Kind.STRICT_EQUAL_TO, " === ");
+        BINARY_OPERATORS.put(Tree.Kind.STRICT_NOT_EQUAL_TO, " !== ");
+        BINARY_OPERATORS.put(Tree.Kind.UNSIGNED_RIGHT_SHIFT, " >>> ");
+        BINARY_OPERATORS.put(Tree.Kind.XOR, " ^ ");
+
+        UNARY_OPERATORS.put(Tree.Kind.BITWISE_COMPLEMENT, " ~ ");
+        UNARY_OPERATORS.put(Tree.Kind.DELETE, "delete  ");
+        UNARY_OPERATORS.put(Tree.Kind.LOGICAL_COMPLEMENT, "!");
+        UNARY_OPERATORS.put(Tree.Kind.POSTFIX_DECREMENT, "--");
+        UNARY_OPERATORS.put(Tree.Kind.POSTFIX_INCREMENT, "++");
+        UNARY_OPERATORS.put(Tree.Kind.PREFIX_DECREMENT, "--");
+        UNARY_OPERATORS.put(Tree.Kind.PREFIX_INCREMENT, "++");
+        UNARY_OPERATORS.put(Tree.Kind.TYPEOF, "typeof ");
+        UNARY_OPERATORS.put(Tree.Kind.UNARY_MINUS, "-");
+        UNARY_OPERATORS.put(Tree.Kind.UNARY_PLUS, "+");
+        UNARY_OPERATORS.put(Tree.Kind.VOID, "void ");
+    }
+    private static final Map<Tree.Kind, Integer> PRECEDENCES = new EnumMap<>(Tree.Kind.class);
+    private static final int UNARY_PRECEDENCE = 15;
+    private static final int POSTFIX_PRECEDENCE = 16;
+    private static final int CALL_PRECEDENCE = 17;
+    private static final int PRIMARY_PRECEDENCE = 20;
+    static {
+        PRECEDENCES.put(Tree.Kind.COMMA, 1);
+        PRECEDENCES.put(Tree.Kind.ASSIGNMENT, 2);
+        PRECEDENCES.put(Tree.Kind.CONDITIONAL_OR, 4);
+        PRECEDENCES.put(Tree.Kind.CONDITIONAL_AND, 5);
+        PRECEDENCES.put(Tree.Kind.OR, 6);
+        PRECEDENCES.put(Tree.Kind.XOR, 7);
+        PRECEDENCES.put(Tree.Kind.AND, 8);
+        for (Tree.Kind kind : Arrays.asList(Tree.Kind.EQUAL_TO, Tree.Kind.NOT_EQUAL_TO,
+                Tree.Kind.STRICT_EQUAL_TO, Tree.Kind.STRICT_NOT_EQUAL_TO)) {
+            PRECEDENCES.put(kind, 9);
+        }
+        for (Tree.Kind kind : Arrays.asList(Tree.Kind.LESS_THAN, Tree.Kind.LESS_THAN_EQUAL,
+                Tree.Kind.GREATER_THAN, Tree.Kind.GREATER_THAN_EQUAL, Tree.Kind.IN)) {
+            PRECEDENCES.put(kind, 10);
+        }
+        PRECEDENCES.put(Tree.Kind.RIGHT_SHIFT, 11);
+        PRECEDENCES.put(Tree.Kind.UNSIGNED_RIGHT_SHIFT, 11);
+        PRECEDENCES.put(Tree.Kind.PLUS, 12);
+        PRECEDENCES.put(Tree.Kind.MINUS, 12);
+        PRECEDENCES.put(Tree.Kind.MULTIPLY, 13);
+        PRECEDENCES.put(Tree.Kind.DIVIDE, 13);
+        PRECEDENCES.put(Tree.Kind.REMAINDER, 13);
+        for (Tree.Kind kind : UNARY_OPERATORS.keySet()) {
+            PRECEDENCES.put(kind, UNARY_PRECEDENCE);
+        }
+        PRECEDENCES.put(Tree.Kind.POSTFIX_DECREMENT, POSTFIX_PRECEDENCE);
+        PRECEDENCES.put(Tree.Kind.POSTFIX_INCREMENT, POSTFIX_PRECEDENCE);
+        PRECEDENCES.put(Tree.Kind.FUNCTION_INVOCATION, CALL_PRECEDENCE);
+    }
+    //short names of lifted parameters mustn't be keywords or well known globals
+    private static final Set<String> RESERVED_NAMES = new HashSet<>(Arrays.asList("break", "case", "catch",
+            "class", "const", "continue", "debugger", "default", "delete", "do", "else", "enum", "export",
+            "extends", "false", "finally", "for", "function", "if", "import", "in", "instanceof", "new", "null",
+            "return", "super", "switch", "this", "throw", "true", "try", "typeof", "var", "void", "while",
+            "with", "yield", "let", "static", "implements", "interface", "package", "private", "protected",
+            "public", "await", "arguments", "eval", "undefined", "NaN", "Infinity"));
+    private static final String NAME_CHARACTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
     private final String LINE_SEPARATOR = "\n";
-    private Map<String, FunctionProperties> changedFunction;
-    public DestructuringAssignmentVisitor() {
-        changedFunction = new HashMap<>();
+    private Map<FunctionDeclarationTree, FunctionProperties> changedFunction;
+    //names of free variables inside of currently printed lifted function
+    private Map<String, String> renamedVariables = Collections.emptyMap();
+    //position of the last emitted node, it's mapped to the next printed token
+    private SourceMap sourceMap;
+    private LineMap lineMap;
+    private long mappedPosition = -1;
+    private ScopeAnalysis scopeAnalysis;
+    private TransformOptions options;
+    private Output output;
+    //lifted functions are written here as soon as they are complete, null if they are printed at the end
+    private Output liftedOutput;
+    //statements which need no rewriting are copied from it, null if every statement is emitted
+    private CharSequence source;
+    //statements which are copied from source in recoverable mode because they can't be emitted
+    private List<TransformDiagnostic> diagnostics = new ArrayList<>();
+    private int nodesCount;
+    private long workersAllocatedBytes;
+    //select of the call being emitted if it calls lifted function
+    private Tree calledIdentifier;
+
+    public DestructuringAssignmentVisitor(Appendable out, ScopeAnalysis scopeAnalysis) {
+        this(out, scopeAnalysis, new TransformOptions());
+    }
+
+    public DestructuringAssignmentVisitor(Appendable out, ScopeAnalysis scopeAnalysis, TransformOptions options) {
+        changedFunction = new IdentityHashMap<>();
+        this.scopeAnalysis = scopeAnalysis;
+        this.options = options;
+        output = new Output(out, null);
+    }
+
+    public DestructuringAssignmentVisitor(Appendable out, ScopeAnalysis scopeAnalysis, TransformOptions options,
+                                          SourceMap sourceMap) {
+        this(out, scopeAnalysis, options);
+        this.sourceMap = sourceMap;
+    }
+
+    //content of liftedOut has to be appended to out after the whole compilation unit is visited
+    public DestructuringAssignmentVisitor(Appendable out, ScopeAnalysis scopeAnalysis, TransformOptions options,
+                                          SourceMap sourceMap, Appendable liftedOut) {
+        this(out, scopeAnalysis, options, sourceMap);
+        liftedOutput = new Output(liftedOut, sourceMap == null ? null : new SourceMap.Segments());
+    }
+
+    //source the visited compilation unit was parsed from
+    public void setSource(CharSequence source) {
+        this.source = source;
     }
 
     @Override
-    public StringBuilder visitCompilationUnit(CompilationUnitTree node, Boolean r) {
-        StringBuilder result = new StringBuilder();
-        node.getSourceElements().forEach((tree) -> {
-            result.append(tree.accept(this, false));
-        });
-        result.append(printNewFunctions());
-        return result;
+    public Void visitCompilationUnit(CompilationUnitTree node, Boolean r) {
+        lineMap = node.getLineMap();
+        if (options.isParallelEmission() && sourceMap == null && liftedOutput == null) {
+            emitInParallel(node.getSourceElements());
+        } else {
+            emitElements(node.getSourceElements(), 0, node.getSourceElements().size());
+        }
+        printNewFunctions();
+        return null;
+    }
+
+    void emitElements(List<? extends Tree> elements, int from, int to) {
+        for (int i = from; i < to; ++i) {
+            if (!isDeclaredByNext(elements, i)) {
+                emitElement(elements.get(i));
+            }
+        }
+    }
+
+    //visitor of the part of source elements emitted in parallel, its output is printed by this one
+    DestructuringAssignmentVisitor createPart(StringBuilder out) {
+        DestructuringAssignmentVisitor part = new DestructuringAssignmentVisitor(out, scopeAnalysis, options);
+        part.lineMap = lineMap;
+        part.source = source;
+        return part;
+    }
+
+    //free variables and names of lifted functions are known before emission, so source elements
+    //are emitted independently and their outputs are printed in source order
+    private void emitInParallel(List<? extends Tree> elements) {
+        EmissionTask task = new EmissionTask(this, elements);
+        task.invoke();
+        for (int i = 0; i < elements.size(); ++i) {
+            DestructuringAssignmentVisitor part = task.getPart(i);
+            if (part == null) {
+                continue;
+            }
+            print(task.getOutput(i));
+            changedFunction.putAll(part.changedFunction);
+            diagnostics.addAll(part.diagnostics);
+            nodesCount += part.nodesCount;
+            workersAllocatedBytes += task.getAllocatedBytes(i);
+            //the first failure in source order is the same as in sequential emission
+            if (task.getFailure(i) != null) {
+                throw task.getFailure(i);
+            }
+        }
     }
 
     @Override
-    public StringBuilder visitVariable(VariableTree node, Boolean r) {
-        StringBuilder variableCode = new StringBuilder("var ");
-        variableCode.append(node.getBinding().accept(this, r));
-        variableCode.append(" = ");
-        variableCode.append(node.getInitializer().accept(this, r));
-        variableCode.append(";").append(LINE_SEPARATOR);
-        return variableCode;
+    public Void visitVariable(VariableTree node, Boolean r) {
+        print("var ");
+        emit(node.getBinding(), r);
+        if (node.getInitializer() != null) {
+            print(" = ");
+            emitOperand(node.getInitializer(), r, PRECEDENCES.get(Tree.Kind.ASSIGNMENT));
+        }
+        print(";").print(LINE_SEPARATOR);
+        return null;
     }
 
     @Override
-    public StringBuilder visitBlock(BlockTree node, Boolean r) {
-        StringBuilder blockCode = new StringBuilder("{").append(LINE_SEPARATOR);
-        node.getStatements().forEach((tree) -> {
-            blockCode.append(tree.accept(this, r));
-        });
-        blockCode.append("}").append(LINE_SEPARATOR);
-        return blockCode;
+    public Void visitBlock(BlockTree node, Boolean r) {
+        print("{").print(LINE_SEPARATOR);
+        List<? extends StatementTree> statements = node.getStatements();
+        for (int i = 0; i < statements.size(); ++i) {
+            if (!isDeclaredByNext(statements, i)) {
+                emitStatement(statements.get(i), r);
+            }
+        }
+        print("}").print(LINE_SEPARATOR);
+        return null;
     }
 
     @Override
-    public StringBuilder visitExpressionStatement(ExpressionStatementTree node, Boolean r) {
-        return node.getExpression().accept(this, r).append(";").append(LINE_SEPARATOR);
+    public Void visitExpressionStatement(ExpressionStatementTree node, Boolean r) {
+        emit(node.getExpression(), r);
+        print(";").print(LINE_SEPARATOR);
+        return null;
     }
 
     @Override
-    public StringBuilder visitAssignment(AssignmentTree node, Boolean r) {
-        StringBuilder assigmentCode = node.getVariable().accept(this, r);
-        assigmentCode.append(" = ");
-        assigmentCode.append(node.getExpression().accept(this, r));
-        return assigmentCode;
+    public Void visitAssignment(AssignmentTree node, Boolean r) {
+        emitOperand(node.getVariable(), r, POSTFIX_PRECEDENCE);
+        print(" = ");
+        emitOperand(node.getExpression(), r, PRECEDENCES.get(Tree.Kind.ASSIGNMENT));
+        return null;
     }
 
     @Override
-    public StringBuilder visitBinary(BinaryTree node, Boolean r) {
-        StringBuilder binaryCode = new StringBuilder("(");
-        binaryCode.append(node.getLeftOperand().accept(this, r)).append(")");
-        StringBuilder operator = new StringBuilder();
-        switch (node.getKind()) {
-            case PLUS:
-                operator.append(" + ");
-                break;
-            case MINUS:
-                operator.append(" - ");
-                break;
-            case AND:
-                operator.append(" & ");
-                break;
-            case COMMA:
-                operator.append(" , ");
-                break;
-            case CONDITIONAL_AND:
-                operator.append(" && ");
-                break;
-            case CONDITIONAL_OR:
-                operator.append(" || ");
-                break;
-            case DIVIDE:
-                operator.append(" / ");
-                break;
-            case EQUAL_TO:
-                operator.append(" == ");
-                break;
-            case GREATER_THAN:
-                operator.append(" > ");
-                break;
-            case GREATER_THAN_EQUAL:
-                operator.append(" >= ");
-                break;
-            case IN:
-                operator.append(" in ");
-                break;
-            case LESS_THAN:
-                operator.append(" < ");
-                break;
-            case LESS_THAN_EQUAL:
-                operator.append(" <= ");
-                break;
-            case MULTIPLY:
-                operator.append(" * ");
-                break;
-            case NOT_EQUAL_TO:
-                operator.append(" != ");
-                break;
-            case OR:
-                operator.append(" | ");
-                break;
-            case REMAINDER:
-                operator.append(" % ");
-                break;
-            case RIGHT_SHIFT:
-                operator.append(" >> ");
-                break;
-            case STRICT_EQUAL_TO:
-                operator.append(" === ");
-                break;
-            case STRICT_NOT_EQUAL_TO:
-                operator.append(" !== ");
-                break;
-            case UNSIGNED_RIGHT_SHIFT:
-                operator.append(" >>> ");
-                break;
-            case XOR:
-                operator.append(" ^ ");
-                break;
-            default:
-                throw new IllegalArgumentException("Binary operator \"" + node.getKind() + "\" doesn't supported");
+    public Void visitBinary(BinaryTree node, Boolean r) {
+        String operator = BINARY_OPERATORS.get(node.getKind());
+        if (operator == null) {
+            throw new IllegalArgumentException("Binary operator \"" + node.getKind() + "\" doesn't supported");
         }
-        binaryCode.append(operator).append("(");
-        binaryCode.append(node.getRightOperand().accept(this, r)).append(")");
-        return binaryCode;
+        if (options.isMinimalParentheses()) {
+            //operators are left associative, so right operand of the same precedence needs parentheses
+            int precedence = PRECEDENCES.get(node.getKind());
+            emitOperand(node.getLeftOperand(), r, precedence);
+            print(operator);
+            emitOperand(node.getRightOperand(), r, precedence + 1);
+            return null;
+        }
+        print("(");
+        emit(node.getLeftOperand(), r);
+        print(")").print(operator).print("(");
+        emit(node.getRightOperand(), r);
+        print(")");
+        return null;
     }
 
     @Override
-    public StringBuilder visitFunctionDeclaration(FunctionDeclarationTree node, Boolean isNestedFunction) {
-        String functionName = node.getName().accept(this, isNestedFunction).toString();
-        StringBuilder functionBody = node.getBody().accept(this, true);
-        List<String> oldArguments = getListArguments(node.getParameters(), isNestedFunction);
-
-        StringBuilder functionDeclaration = new StringBuilder("function ");
+    public Void visitFunctionDeclaration(FunctionDeclarationTree node, Boolean isNestedFunction) {
+        String functionName = node.getName().getName();
         if (!isNestedFunction) {
-            functionDeclaration.append(functionName);
-            functionDeclaration.append("(");
-            functionDeclaration.append(printArguments(oldArguments));
-            functionDeclaration.append(") ");
-            functionDeclaration.append(functionBody);
-            return functionDeclaration;
+            print("function ").print(functionName).print("(");
+            printArguments(node.getParameters(), isNestedFunction);
+            print(") ");
+            emit(node.getBody(), true);
+            return null;
         } else {
-            List<String> internalUsedVariables = new ArrayList<>();
-            node.accept(new CollectorIdentifiersVisitor(), new Pair(internalUsedVariables, false));
-            changedFunction.put(functionName, new FunctionProperties(internalUsedVariables, functionBody));
-            return new StringBuilder();
+            //body of nested function is printed after all source elements or as soon as it's complete
+            StringBuilder functionBody = new StringBuilder();
+            List<String> freeVariables = scopeAnalysis.getFreeVariables(node);
+            Map<String, String> parentRenamedVariables = renamedVariables;
+            renamedVariables = shortenNames(freeVariables);
+            SourceMap.Segments functionSegments = sourceMap == null ? null : new SourceMap.Segments();
+            Output parentOutput = output;
+            output = new Output(functionBody, functionSegments);
+            emit(node.getBody(), true);
+            output = parentOutput;
+            List<String> freeVariablesNames = new ArrayList<>(freeVariables.size());
+            for (String variable : freeVariables) {
+                freeVariablesNames.add(renamedVariables.getOrDefault(variable, variable));
+            }
+            renamedVariables = parentRenamedVariables;
+            boolean isStreamed = liftedOutput != null;
+            FunctionProperties functionProperties = new FunctionProperties(getParametersNames(node), freeVariables,
+                    freeVariablesNames, isStreamed ? null : functionBody, node.getStartPosition(),
+                    isStreamed ? null : functionSegments);
+            changedFunction.put(node, functionProperties);
+            if (isStreamed) {
+                //declarations are hoisted, so complete function can be written after any statement
+                output = liftedOutput;
+                printFunction(scopeAnalysis.getScope(node).getLiftedName(), functionProperties, functionBody,
+                        functionSegments);
+                output = parentOutput;
+            }
+            return null;
         }
     }
 
     @Override
-    public StringBuilder visitFunctionCall(FunctionCallTree node, Boolean r) {
-        StringBuilder functionName = node.getFunctionSelect().accept(this, r);
-        StringBuilder functionCallCode = new StringBuilder(functionName).append("(");
-        List<String> requiredArguments = getListArguments(node.getArguments(), r);
-        functionCallCode.append(printArguments(requiredArguments));
-        if (changedFunction.containsKey(functionName.toString())) {
-            List<String> newArguments = changedFunction.get(functionName.toString()).getArguments();
-            List<String> additionalArguments = newArguments.subList(requiredArguments.size(), newArguments.size());
+    public Void visitFunctionCall(FunctionCallTree node, Boolean r) {
+        ExpressionTree functionSelect = node.getFunctionSelect();
+        FunctionDeclarationTree function = scopeAnalysis.getCalledFunction(node);
+        if (function != null) {
+            calledIdentifier = functionSelect;
+        }
+        emitOperand(functionSelect, r, CALL_PRECEDENCE);
+        print("(");
+        List<? extends ExpressionTree> requiredArguments = node.getArguments();
+        printArguments(requiredArguments, r);
+        if (function != null) {
+            List<String> additionalArguments = new ArrayList<>();
+            //omitted parameters have to be passed explicitly to keep free variables on their positions
+            for (int i = requiredArguments.size(); i < function.getParameters().size(); ++i) {
+                additionalArguments.add("undefined");
+            }
+            //free variables are passed by the names they have in the caller
+            for (String variable : scopeAnalysis.getFreeVariables(function)) {
+                additionalArguments.add(renamedVariables.getOrDefault(variable, variable));
+            }
             if (!requiredArguments.isEmpty() && !additionalArguments.isEmpty()) {
-                functionCallCode.append(", ");
+                print(", ");
             }
-            functionCallCode.append(printArguments(additionalArguments));
+            printArguments(additionalArguments);
         }
-        functionCallCode.append(")");
-        return functionCallCode;
+        print(")");
+        return null;
     }
 
     @Override
-    public StringBuilder visitIdentifier(IdentifierTree node, Boolean r) {
-        return new StringBuilder(node.getName());
+    public Void visitIdentifier(IdentifierTree node, Boolean r) {
+        String name = renamedVariables.get(node.getName());
+        if (name == null) {
+            FunctionDeclarationTree function = scopeAnalysis.getReferredFunction(node);
+            //free variables are passed only by calls, function referred as value would miss them
+            if (function != null && node != calledIdentifier && !scopeAnalysis.getFreeVariables(function).isEmpty()) {
+                throw new UnsupportedStatementException("doesnt support reference to function "
+                        + node.getName() + " with free variables");
+            }
+            name = function == null ? null : scopeAnalysis.getScope(function).getLiftedName();
+        }
+        print(name == null ? node.getName() : name);
+        return null;
     }
 
     @Override
-    public StringBuilder visitLiteral(LiteralTree node, Boolean r) {
-        return new StringBuilder(node.getValue().toString());
+    public Void visitLiteral(LiteralTree node, Boolean r) {
+        print(node.getValue().toString());
+        return null;
     }
 
     @Override
-    public StringBuilder visitParenthesized(ParenthesizedTree node, Boolean r) {
-        StringBuilder parenthesizedCode = new StringBuilder("(");
-        parenthesizedCode.append(node.getExpression().accept(this, r));
-        parenthesizedCode.append(")");
-        return parenthesizedCode;
+    public Void visitParenthesized(ParenthesizedTree node, Boolean r) {
+        print("(");
+        emit(node.getExpression(), r);
+        print(")");
+        return null;
     }
 
     @Override
-    public StringBuilder visitReturn(ReturnTree node, Boolean r) {
-        StringBuilder returnCode = new StringBuilder("return ");
-        returnCode.append(node.getExpression().accept(this, r));
-        returnCode.append(";").append(LINE_SEPARATOR);
-        return returnCode;
+    public Void visitReturn(ReturnTree node, Boolean r) {
+        print("return ");
+        emit(node.getExpression(), r);
+        print(";").print(LINE_SEPARATOR);
+        return null;
     }
 
     @Override
-    public StringBuilder visitUnary(UnaryTree node, Boolean r) {
-        boolean isPrefixOperator = true;
-        StringBuilder operator = new StringBuilder();
-        switch (node.getKind()){
-            case BITWISE_COMPLEMENT:
-                operator.append(" ~ ");
-                break;
-            case DELETE:
-                operator.append("delete  ");
-                break;
-            case LOGICAL_COMPLEMENT:
-                operator.append("!");
-                break;
-            case POSTFIX_DECREMENT:
-                operator.append("--");
-                isPrefixOperator = false;
-                break;
-            case POSTFIX_INCREMENT:
-                operator.append("++");
-                isPrefixOperator = false;
-                break;
-            case PREFIX_DECREMENT:
-                operator.append("--");
-                break;
-            case PREFIX_INCREMENT:
-                operator.append("++");
-                break;
-            case TYPEOF:
-                operator.append("typeof ");
-                break;
-            case UNARY_MINUS:
-                operator.append("-");
-                break;
-            case UNARY_PLUS:
-                operator.append("+");
-                break;
-            case VOID:
-                operator.append("void ");
+    public Void visitUnary(UnaryTree node, Boolean r) {
+        String operator = UNARY_OPERATORS.get(node.getKind());
+        if (operator == null) {
+            throw new IllegalArgumentException("Unary operator \"" + node.getKind() + "\" doesn't supported");
+        }
+        if (node.getKind() != Tree.Kind.POSTFIX_DECREMENT && node.getKind() != Tree.Kind.POSTFIX_INCREMENT) {
+            print(operator);
+            if (options.isMinimalParentheses() && isSameSign(operator, node.getExpression())) {
+                //- -a mustn't become --a
+                print("(");
+                emit(node.getExpression(), r);
+                print(")");
+            } else {
+                emitOperand(node.getExpression(), r, UNARY_PRECEDENCE);
+            }
+        } else {
+            emitOperand(node.getExpression(), r, POSTFIX_PRECEDENCE);
+            print(operator);
+        }
+        return null;
+    }
+
+    //bytes allocated by workers of parallel emission, not by the thread which called the visitor
+    public long getWorkersAllocatedBytes() {
+        return workersAllocatedBytes;
+    }
+
+    public int getNodesCount() {
+        return nodesCount;
+    }
+
+    public int getLiftedFunctionsCount() {
+        return changedFunction.size();
+    }
+
+    //warnings about statements copied from source, source name isn't known here
+    public List<TransformDiagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
+    private void emit(Tree node, Boolean r) {
+        nodesCount++;
+        if (sourceMap != null) {
+            mappedPosition = node.getStartPosition();
+        }
+        node.accept(this, r);
+    }
+
+    private void emitStatement(Tree statement, Boolean r) {
+        if (options.isCopyUnchanged() && source != null && !options.isCompact() && renamedVariables.isEmpty()
+                && !scopeAnalysis.needsRewriting(statement) && copyStatement(statement)) {
+            nodesCount++;
+            return;
+        }
+        if (!options.isRecoverable() || source == null || !(output.out instanceof StringBuilder)) {
+            emit(statement, r);
+            return;
+        }
+        Checkpoint checkpoint = new Checkpoint();
+        try {
+            emit(statement, r);
+        } catch (RuntimeException e) {
+            //failure to write output isn't fault of the statement
+            if (e instanceof UncheckedIOException) {
+                throw e;
+            }
+            //copied statement means the same only if nothing inside of it is rewritten,
+            //otherwise the enclosing statement is copied
+            if (!checkpoint.renamedVariables.isEmpty() || scopeAnalysis.needsRewriting(statement)) {
+                throw e;
+            }
+            checkpoint.restore();
+            recover(statement, e);
+        }
+    }
+
+    //in recoverable mode source element is emitted to its own buffer,
+    //so it can be replaced by its source whatever fails inside of it
+    private void emitElement(Tree element) {
+        if (!options.isRecoverable() || source == null) {
+            emitStatement(element, false);
+            return;
+        }
+        Output parentOutput = output;
+        StringBuilder buffer = new StringBuilder();
+        output = new Output(buffer, sourceMap == null ? null : new SourceMap.Segments());
+        output.lastPrinted = parentOutput.lastPrinted;
+        try {
+            emitStatement(element, false);
+        } catch (RuntimeException e) {
+            if (e instanceof UncheckedIOException) {
+                throw e;
+            }
+            output = parentOutput;
+            renamedVariables = Collections.emptyMap();
+            mappedPosition = -1;
+            //functions lifted from the element stay nested in its copy
+            for (FunctionDeclarationTree function : scopeAnalysis.getLiftedFunctions()) {
+                if (function.getStartPosition() >= element.getStartPosition()
+                        && function.getEndPosition() <= element.getEndPosition()) {
+                    changedFunction.remove(function);
+                }
+            }
+            recover(element, e);
+            return;
+        }
+        SourceMap.Segments elementSegments = output.segments;
+        output = parentOutput;
+        if (elementSegments != null) {
+            if (output.segments != null) {
+                elementSegments.addTo(output.segments, output.line, output.column);
+            } else {
+                elementSegments.addTo(sourceMap, output.line, output.column);
+            }
+        }
+        print(buffer);
+    }
+
+    //statement is copied from source and the warning about it is added
+    private void recover(Tree statement, RuntimeException e) {
+        int start = (int) statement.getStartPosition();
+        int end = findStatementEnd(source, start, (int) statement.getEndPosition());
+        int next = end;
+        while (next < source.length() && (source.charAt(next) == ' ' || source.charAt(next) == '\t')) {
+            next++;
+        }
+        if (next < source.length() && source.charAt(next) == ';') {
+            end = next + 1;
+        }
+        printSource(statement, start, end);
+        char last = end > start ? source.charAt(end - 1) : ';';
+        //statements ending with block need no semicolon, other ones may rely on line separator
+        if (last != ';' && (last != '}' || statement.getKind() == Tree.Kind.VARIABLE
+                || statement.getKind() == Tree.Kind.EXPRESSION_STATEMENT
+                || statement.getKind() == Tree.Kind.RETURN || statement.getKind() == Tree.Kind.THROW)) {
+            print(";");
+        }
+        print(LINE_SEPARATOR);
+        diagnostics.add(new TransformDiagnostic(TransformDiagnostic.Kind.WARNING,
+                (e.getMessage() == null ? e.toString() : e.getMessage()) + ", statement is copied from source",
+                lineMap.getLineNumber(start), lineMap.getColumnNumber(start)));
+    }
+
+    //nashorn ranges may miss closing parentheses and quotes, so the statement ends where
+    //string literal and brackets opened inside of its range are closed,
+    //trailing comments and whitespace aren't part of it, so semicolon added after it isn't commented out
+    private static int findStatementEnd(CharSequence source, int start, int end) {
+        int depth = 0;
+        char quote = 0;
+        //the last significant character tells regular expression from division
+        char previous = ';';
+        int significantEnd = start;
+        int i = start;
+        while (i < source.length() && (i < end || depth > 0 || quote != 0)) {
+            char c = source.charAt(i);
+            char next = i + 1 < source.length() ? source.charAt(i + 1) : 0;
+            if (quote != 0) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == quote) {
+                    quote = 0;
+                    previous = c;
+                }
+                i++;
+                significantEnd = i;
+                continue;
+            }
+            if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '/' && next == '/') {
+                while (i < source.length() && source.charAt(i) != '\n') {
+                    i++;
+                }
+                continue;
+            } else if (c == '/' && next == '*') {
+                i += 2;
+                while (i < source.length() && !(source.charAt(i - 1) == '*' && source.charAt(i) == '/')) {
+                    i++;
+                }
+                i++;
+                continue;
+            } else if (c == '/' && "(,=:[!&|?{};+-*%<>~^".indexOf(previous) >= 0) {
+                i = skipRegExp(source, i);
+                previous = '/';
+                significantEnd = i;
+                continue;
+            } else if (c == '(' || c == '[' || c == '{') {
+                depth++;
+            } else if (c == ')' || c == ']' || c == '}') {
+                if (depth == 0) {
+                    //it belongs to the enclosing statement
+                    break;
+                }
+                depth--;
+            }
+            if (!Character.isWhitespace(c)) {
+                previous = c;
+                significantEnd = i + 1;
+            }
+            i++;
+        }
+        return Math.min(significantEnd, source.length());
+    }
+
+    //returns position after flags of regular expression which starts at the given position
+    private static int skipRegExp(CharSequence source, int start) {
+        boolean isClass = false;
+        int i = start + 1;
+        while (i < source.length() && source.charAt(i) != '\n') {
+            char c = source.charAt(i++);
+            if (c == '\\') {
+                i++;
+            } else if (c == '[') {
+                isClass = true;
+            } else if (c == ']') {
+                isClass = false;
+            } else if (c == '/' && !isClass) {
                 break;
+            }
+        }
+        while (i < source.length() && isNamePart(source.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    //nashorn puts variable declared in for loop before the loop, it's printed with the loop
+    private static boolean isDeclaredByNext(List<? extends Tree> statements, int index) {
+        if (index + 1 >= statements.size() || statements.get(index).getKind() != Tree.Kind.VARIABLE) {
+            return false;
+        }
+        Tree statement = statements.get(index);
+        Tree next = statements.get(index + 1);
+        return next.getStartPosition() <= statement.getStartPosition()
+                && statement.getEndPosition() <= next.getEndPosition();
+    }
+
+    //returns false if statement can't be copied
+    private boolean copyStatement(Tree statement) {
+        int start = (int) statement.getStartPosition();
+        int end = (int) statement.getEndPosition();
+        switch (statement.getKind()) {
+            case VARIABLE:
+            case EXPRESSION_STATEMENT:
+            case RETURN:
+                end = findStatementEnd(source, start, end);
+                while (end > start
+                        && (source.charAt(end - 1) == ';' || Character.isWhitespace(source.charAt(end - 1)))) {
+                    end--;
+                }
+                printSource(statement, start, end);
+                print(";").print(LINE_SEPARATOR);
+                return true;
+            case FUNCTION:
+                if (end <= start || source.charAt(end - 1) != '}') {
+                    return false;
+                }
+                printSource(statement, start, end);
+                print(LINE_SEPARATOR);
+                return true;
             default:
-                throw new IllegalArgumentException("Unary operator \"" + node.getKind() + "\" doesn't supported");
+                return false;
         }
+    }
+
+    private void printSource(Tree statement, int start, int end) {
+        if (sourceMap != null) {
+            mappedPosition = statement.getStartPosition();
+        }
+        print(source.subSequence(start, end));
+    }
+
+    //in minimal parentheses mode operand is wrapped only if it binds weaker than its position requires
+    private void emitOperand(Tree operand, Boolean r, int minPrecedence) {
+        if (options.isMinimalParentheses()
+                && PRECEDENCES.getOrDefault(operand.getKind(), PRIMARY_PRECEDENCE) < minPrecedence) {
+            print("(");
+            emit(operand, r);
+            print(")");
+        } else {
+            emit(operand, r);
+        }
+    }
+
+    private boolean isSameSign(String operator, Tree operand) {
+        String operandOperator = UNARY_OPERATORS.get(operand.getKind());
+        return operandOperator != null && operand.getKind() != Tree.Kind.POSTFIX_DECREMENT
+                && operand.getKind() != Tree.Kind.POSTFIX_INCREMENT
+                && (operator.equals("-") || operator.equals("+"))
+                && operandOperator.charAt(0) == operator.charAt(0);
+    }
+
+    private DestructuringAssignmentVisitor print(CharSequence code) {
+        try {
+            if (!options.isCompact()) {
+                if (sourceMap != null && code.length() > 0) {
+                    addMapping();
+                    updatePosition(code, 0, code.length());
+                }
+                output.out.append(code);
+                return this;
+            }
+            //in compact mode tokens are trimmed and separated only if they would merge otherwise
+            int start = 0;
+            int end = code.length();
+            while (start < end && Character.isWhitespace(code.charAt(start))) {
+                start++;
+            }
+            while (end > start && Character.isWhitespace(code.charAt(end - 1))) {
+                end--;
+            }
+            if (start == end) {
+                return this;
+            }
+            if (needsSeparator(output.lastPrinted, code.charAt(start))) {
+                output.out.append(' ');
+                output.column++;
+            }
+            if (sourceMap != null) {
+                addMapping();
+                updatePosition(code, start, end);
+            }
+            output.out.append(code, start, end);
+            output.lastPrinted = code.charAt(end - 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
 
-        StringBuilder unaryCode = new StringBuilder();
-        if (isPrefixOperator) {
-            unaryCode.append(operator);
-            unaryCode.append(node.getExpression().accept(this, r));
+    private void addMapping() {
+        if (mappedPosition < 0) {
+            return;
+        }
+        int sourceLine = (int) lineMap.getLineNumber(mappedPosition) - 1;
+        int sourceColumn = (int) lineMap.getColumnNumber(mappedPosition);
+        if (output.segments != null) {
+            output.segments.add(output.line, output.column, sourceLine, sourceColumn);
         } else {
-            unaryCode.append(node.getExpression().accept(this, r));
-            unaryCode.append(operator);
+            sourceMap.addMapping(output.line, output.column, sourceLine, sourceColumn);
+        }
+        mappedPosition = -1;
+    }
+
+    private void updatePosition(CharSequence code, int start, int end) {
+        for (int i = start; i < end; ++i) {
+            if (code.charAt(i) == '\n') {
+                output.line++;
+                output.column = 0;
+            } else {
+                output.column++;
+            }
         }
-        return unaryCode;
     }
 
-    private StringBuilder printArguments(List<String> arguments) {
-        StringBuilder result = new StringBuilder();
+    //a b, + +a and - -a mustn't become ab, ++a and --a
+    private static boolean needsSeparator(char previous, char next) {
+        return isNamePart(previous) && isNamePart(next) || (previous == '+' || previous == '-') && previous == next;
+    }
+
+    private static boolean isNamePart(char c) {
+        return Character.isLetterOrDigit(c) || c == '$' || c == '_';
+    }
+
+    //every free variable gets the shortest name which is not used anywhere in the compilation unit
+    private Map<String, String> shortenNames(List<String> freeVariables) {
+        if (!options.isShortenLiftedParameters() || freeVariables.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> result = new HashMap<>();
+        int index = 0;
+        for (String variable : freeVariables) {
+            String name;
+            do {
+                name = getShortName(index++);
+            } while (scopeAnalysis.getNames().contains(name) || RESERVED_NAMES.contains(name));
+            if (name.length() < variable.length()) {
+                result.put(variable, name);
+            }
+        }
+        return result;
+    }
+
+    private static String getShortName(int index) {
+        StringBuilder name = new StringBuilder();
+        do {
+            name.append(NAME_CHARACTERS.charAt(index % NAME_CHARACTERS.length()));
+            index = index / NAME_CHARACTERS.length() - 1;
+        } while (index >= 0);
+        return name.toString();
+    }
+
+    private void printArguments(List<String> arguments) {
         for (int i = 0; i < arguments.size(); ++i) {
-            result.append(arguments.get(i));
+            print(arguments.get(i));
             if (i < arguments.size() - 1) {
-                result.append(", ");
+                print(", ");
             }
         }
-        return result;
     }
 
-    private List<String> getListArguments(List<? extends ExpressionTree> arguments, Boolean r) {
-        List<String> result = new ArrayList<>();
+    private void printArguments(List<? extends ExpressionTree> arguments, Boolean r) {
         for (int i = 0; i < arguments.size(); ++i) {
-            result.add(arguments.get(i).accept(this, r).toString());
+            emitOperand(arguments.get(i), r, PRECEDENCES.get(Tree.Kind.ASSIGNMENT));
+            if (i < arguments.size() - 1) {
+                print(", ");
+            }
         }
-        return result;
     }
 
-    private StringBuilder printNewFunctions() {
-        StringBuilder result = new StringBuilder();
-        for (Map.Entry<String, FunctionProperties> newFunction: changedFunction.entrySet()) {
-            result.append("function ").append(newFunction.getKey()).append("(");
-            FunctionProperties functionProperties = newFunction.getValue();
-            result.append(printArguments(functionProperties.getArguments()));
-            result.append(") ").append(functionProperties.getBody());
+    private List<String> getParametersNames(FunctionDeclarationTree node) {
+        List<String> result = new ArrayList<>();
+        for (ExpressionTree parameter : node.getParameters()) {
+            if (!(parameter instanceof IdentifierTree)) {
+                throw new UnsupportedStatementException("doesnt support parameter " + parameter.getKind().toString());
+            }
+            result.add(((IdentifierTree) parameter).getName());
         }
         return result;
     }
 
+    private void printNewFunctions() {
+        for (FunctionDeclarationTree function : scopeAnalysis.getLiftedFunctions()) {
+            FunctionProperties functionProperties = changedFunction.get(function);
+            if (functionProperties != null && functionProperties.getBody() != null) {
+                printFunction(scopeAnalysis.getScope(function).getLiftedName(), functionProperties,
+                        functionProperties.getBody(), functionProperties.getSegments());
+            }
+        }
+        if (liftedOutput != null && liftedOutput.segments != null) {
+            //lifted functions follow the last printed token
+            liftedOutput.segments.addTo(sourceMap, output.line, output.column);
+        }
+    }
+
+    private void printFunction(String name, FunctionProperties functionProperties, StringBuilder body,
+                               SourceMap.Segments bodySegments) {
+        if (sourceMap != null) {
+            mappedPosition = functionProperties.getPosition();
+        }
+        print("function ").print(name).print("(");
+        printArguments(functionProperties.getParameters());
+        if (!functionProperties.getParameters().isEmpty() && !functionProperties.getFreeVariables().isEmpty()) {
+            print(", ");
+        }
+        printArguments(functionProperties.getFreeVariablesNames());
+        print(") ");
+        if (bodySegments != null) {
+            if (output.segments != null) {
+                bodySegments.addTo(output.segments, output.line, output.column);
+            } else {
+                bodySegments.addTo(sourceMap, output.line, output.column);
+            }
+        }
+        print(body);
+    }
+
+    //state of emission before the statement, it's restored when the statement is copied from source
+    private class Checkpoint {
+        private Output output;
+        private int length;
+        private int segmentsCount;
+        private int line;
+        private int column;
+        private char lastPrinted;
+        private Map<String, String> renamedVariables;
+
+        //output has to be StringBuilder
+        private Checkpoint() {
+            output = DestructuringAssignmentVisitor.this.output;
+            length = ((StringBuilder) output.out).length();
+            segmentsCount = output.segments == null ? 0 : output.segments.getCount();
+            line = output.line;
+            column = output.column;
+            lastPrinted = output.lastPrinted;
+            renamedVariables = DestructuringAssignmentVisitor.this.renamedVariables;
+        }
+
+        private void restore() {
+            ((StringBuilder) output.out).setLength(length);
+            if (output.segments != null) {
+                output.segments.truncate(segmentsCount);
+            }
+            output.line = line;
+            output.column = column;
+            output.lastPrinted = lastPrinted;
+            DestructuringAssignmentVisitor.this.output = output;
+            DestructuringAssignmentVisitor.this.renamedVariables = renamedVariables;
+            mappedPosition = -1;
+        }
+    }
+
+    //where tokens are printed, mappings of them are added to segments unless they are null
+    private static class Output {
+        private Appendable out;
+        private SourceMap.Segments segments;
+        private int line;
+        private int column;
+        private char lastPrinted = ' ';
+
+        private Output(Appendable out, SourceMap.Segments segments) {
+            this.out = out;
+            this.segments = segments;
+        }
+    }
+
     public class FunctionProperties {
-        private List<String> arguments;
+        private List<String> parameters;
+        private List<String> freeVariables;
+        private List<String> freeVariablesNames;
         private StringBuilder body;
-
-        public FunctionProperties(List<String> arguments, StringBuilder body) {
-            this.arguments = arguments;
+        private long position;
+        private SourceMap.Segments segments;
+
+        public FunctionProperties(List<String> parameters, List<String> freeVariables,
+                                  List<String> freeVariablesNames, StringBuilder body,
+                                  long position, SourceMap.Segments segments) {
+            this.parameters = parameters;
+            this.freeVariables = freeVariables;
+            this.freeVariablesNames = freeVariablesNames;
             this.body = body;
+            this.position = position;
+            this.segments = segments;
+        }
+
+        public List<String> getParameters() {
+            return parameters;
         }
 
-        public List<String> getArguments() {
-            return arguments;
+        public List<String> getFreeVariables() {
+            return freeVariables;
         }
 
+        //names of free variables inside of lifted function
+        public List<String> getFreeVariablesNames() {
+            return freeVariablesNames;
+        }
+
+        //null if function is already printed
         public StringBuilder getBody() {
             return body;
         }
+
+        public long getPosition() {
+            return position;
+        }
+
+        //mappings of body, null if source map isn't generated or body is already printed
+        public SourceMap.Segments getSegments() {
+            return segments;
+        }
     }
 
 
     //throw exceptions from unsupported methods
     @Override
-    public StringBuilder visitCompoundAssignment(CompoundAssignmentTree node, Boolean aBoolean) {
+    public Void visitCompoundAssignment(CompoundAssignmentTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitBreak(BreakTree node, Boolean aBoolean) {
+    public Void visitBreak(BreakTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitCase(CaseTree node, Boolean aBoolean) {
+    public Void visitCase(CaseTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitCatch(CatchTree node, Boolean aBoolean) {
+    public Void visitCatch(CatchTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitClassDeclaration(ClassDeclarationTree node, Boolean aBoolean) {
+    public Void visitClassDeclaration(ClassDeclarationTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitClassExpression(ClassExpressionTree node, Boolean aBoolean) {
+    public Void visitClassExpression(ClassExpressionTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitConditionalExpression(ConditionalExpressionTree node, Boolean aBoolean) {
+    public Void visitConditionalExpression(ConditionalExpressionTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitContinue(ContinueTree node, Boolean aBoolean) {
+    public Void visitContinue(ContinueTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitDebugger(DebuggerTree node, Boolean aBoolean) {
+    public Void visitDebugger(DebuggerTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitDoWhileLoop(DoWhileLoopTree node, Boolean aBoolean) {
+    public Void visitDoWhileLoop(DoWhileLoopTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitErroneous(ErroneousTree node, Boolean aBoolean) {
+    public Void visitErroneous(ErroneousTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitForLoop(ForLoopTree node, Boolean aBoolean) {
+    public Void visitForLoop(ForLoopTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitForInLoop(ForInLoopTree node, Boolean aBoolean) {
+    public Void visitForInLoop(ForInLoopTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitForOfLoop(ForOfLoopTree node, Boolean aBoolean) {
+    public Void visitForOfLoop(ForOfLoopTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitFunctionExpression(FunctionExpressionTree node, Boolean aBoolean) {
+    public Void visitFunctionExpression(FunctionExpressionTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitIf(IfTree node, Boolean aBoolean) {
+    public Void visitIf(IfTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitArrayAccess(ArrayAccessTree node, Boolean aBoolean) {
+    public Void visitArrayAccess(ArrayAccessTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitArrayLiteral(ArrayLiteralTree node, Boolean aBoolean) {
+    public Void visitArrayLiteral(ArrayLiteralTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitLabeledStatement(LabeledStatementTree node, Boolean aBoolean) {
+    public Void visitLabeledStatement(LabeledStatementTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitMemberSelect(MemberSelectTree node, Boolean aBoolean) {
+    public Void visitMemberSelect(MemberSelectTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitNew(NewTree node, Boolean aBoolean) {
+    public Void visitNew(NewTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitObjectLiteral(ObjectLiteralTree node, Boolean aBoolean) {
+    public Void visitObjectLiteral(ObjectLiteralTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitProperty(PropertyTree node, Boolean aBoolean) {
+    public Void visitProperty(PropertyTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitRegExpLiteral(RegExpLiteralTree node, Boolean aBoolean) {
+    public Void visitRegExpLiteral(RegExpLiteralTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitTemplateLiteral(TemplateLiteralTree node, Boolean aBoolean) {
+    public Void visitTemplateLiteral(TemplateLiteralTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitEmptyStatement(EmptyStatementTree node, Boolean aBoolean) {
+    public Void visitEmptyStatement(EmptyStatementTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitSpread(SpreadTree node, Boolean aBoolean) {
+    public Void visitSpread(SpreadTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitSwitch(SwitchTree node, Boolean aBoolean) {
+    public Void visitSwitch(SwitchTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitThrow(ThrowTree node, Boolean aBoolean) {
+    public Void visitThrow(ThrowTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitModule(ModuleTree node, Boolean aBoolean) {
+    public Void visitModule(ModuleTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitExportEntry(ExportEntryTree node, Boolean aBoolean) {
+    public Void visitExportEntry(ExportEntryTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitImportEntry(ImportEntryTree node, Boolean aBoolean) {
+    public Void visitImportEntry(ImportEntryTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitTry(TryTree node, Boolean aBoolean) {
+    public Void visitTry(TryTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitInstanceOf(InstanceOfTree node, Boolean aBoolean) {
+    public Void visitInstanceOf(InstanceOfTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitWhileLoop(WhileLoopTree node, Boolean aBoolean) {
+    public Void visitWhileLoop(WhileLoopTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitWith(WithTree node, Boolean aBoolean) {
+    public Void visitWith(WithTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitYield(YieldTree node, Boolean aBoolean) {
+    public Void visitYield(YieldTree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 
     @Override
-    public StringBuilder visitUnknown(Tree node, Boolean aBoolean) {
+    public Void visitUnknown(Tree node, Boolean aBoolean) {
         throw new UnsupportedStatementException("doesnt support statement " +node.getKind().toString());
     }
 }
@@ -0,0 +1,91 @@
+package main;
+
+import jdk.nashorn.api.tree.Tree;
+
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+//source elements are split in halves until they are small enough,
+//every part is emitted by its own visitor which is stored by index of its first element
+@SuppressWarnings("serial") //task is never serialized
+class EmissionTask extends RecursiveAction {
+    //smaller parts of source aren't split between workers
+    private static final long THRESHOLD = 16 * 1024;
+    private DestructuringAssignmentVisitor visitor;
+    private List<? extends Tree> elements;
+    private int from;
+    private int to;
+    private DestructuringAssignmentVisitor[] parts;
+    private StringBuilder[] outputs;
+    private RuntimeException[] failures;
+    private long[] allocatedBytes;
+    private Thread owner;
+
+    EmissionTask(DestructuringAssignmentVisitor visitor, List<? extends Tree> elements) {
+        this.visitor = visitor;
+        this.elements = elements;
+        from = 0;
+        to = elements.size();
+        parts = new DestructuringAssignmentVisitor[elements.size()];
+        outputs = new StringBuilder[elements.size()];
+        failures = new RuntimeException[elements.size()];
+        allocatedBytes = new long[elements.size()];
+        owner = Thread.currentThread();
+    }
+
+    private EmissionTask(EmissionTask parent, int from, int to) {
+        visitor = parent.visitor;
+        elements = parent.elements;
+        this.from = from;
+        this.to = to;
+        parts = parent.parts;
+        outputs = parent.outputs;
+        failures = parent.failures;
+        allocatedBytes = parent.allocatedBytes;
+        owner = parent.owner;
+    }
+
+    //null if element isn't the first one of part
+    DestructuringAssignmentVisitor getPart(int index) {
+        return parts[index];
+    }
+
+    StringBuilder getOutput(int index) {
+        return outputs[index];
+    }
+
+    //null if part is emitted
+    RuntimeException getFailure(int index) {
+        return failures[index];
+    }
+
+    //bytes allocated by part emitted on other thread than the one which invoked the task
+    long getAllocatedBytes(int index) {
+        return allocatedBytes[index];
+    }
+
+    @Override
+    protected void compute() {
+        if (from >= to) {
+            return;
+        }
+        long length = elements.get(to - 1).getEndPosition() - elements.get(from).getStartPosition();
+        if (to - from > 1 && length > THRESHOLD) {
+            int middle = (from + to) >>> 1;
+            invokeAll(new EmissionTask(this, from, middle), new EmissionTask(this, middle, to));
+            return;
+        }
+        long startAllocatedBytes = TransformMetrics.currentThreadAllocatedBytes();
+        outputs[from] = new StringBuilder();
+        parts[from] = visitor.createPart(outputs[from]);
+        try {
+            parts[from].emitElements(elements, from, to);
+        } catch (RuntimeException e) {
+            failures[from] = e;
+        }
+        //allocations of the invoking thread are already measured by its metrics
+        if (Thread.currentThread() != owner) {
+            allocatedBytes[from] = TransformMetrics.currentThreadAllocatedBytes() - startAllocatedBytes;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package main;
+
+import jdk.nashorn.api.tree.FunctionDeclarationTree;
+
+//the function or the compilation unit with its parent, names it declares are resolved by ScopeChain
+public class FunctionScope {
+    private FunctionScope parent;
+    private FunctionDeclarationTree function;
+    private String liftedName;
+
+    public FunctionScope(FunctionScope parent, FunctionDeclarationTree function) {
+        this.parent = parent;
+        this.function = function;
+    }
+
+    //null for the compilation unit
+    public FunctionScope getParent() {
+        return parent;
+    }
+
+    //null for the compilation unit
+    public FunctionDeclarationTree getFunction() {
+        return function;
+    }
+
+    //unique name of nested function at top level, null if function isn't lifted
+    public String getLiftedName() {
+        return liftedName;
+    }
+
+    void setLiftedName(String liftedName) {
+        this.liftedName = liftedName;
+    }
+}
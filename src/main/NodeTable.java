@@ -0,0 +1,533 @@
+package main;
+
+import jdk.nashorn.api.tree.*;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+//compilation unit lowered to arrays, it's the form in which analyzed unit is stored and loaded,
+//analysis and emission walk nashorn trees, loaded table is emitted through views of its nodes,
+//children of node are linked in order of SimpleTreeVisitorES6, so binding of variable is its first child
+public class NodeTable {
+    private static final Tree.Kind[] KINDS = Tree.Kind.values();
+    private static final int INITIAL_CAPACITY = 256;
+    private int size;
+    private byte[] kinds;
+    private int[] firstChildren;
+    private int[] lastChildren;
+    private int[] nextSiblings;
+    //names of identifiers, functions and selected members, printed values of literals, -1 for other nodes
+    private int[] symbols;
+    private int[] startPositions;
+    private int[] endPositions;
+    //only loaded table has views of its nodes, lowered one keeps no trees
+    private Tree[] views;
+    private String[] symbolNames;
+    private int symbolsCount;
+    private Map<String, Integer> symbolIds;
+
+    private NodeTable() {
+        kinds = new byte[INITIAL_CAPACITY];
+        firstChildren = new int[INITIAL_CAPACITY];
+        lastChildren = new int[INITIAL_CAPACITY];
+        nextSiblings = new int[INITIAL_CAPACITY];
+        symbols = new int[INITIAL_CAPACITY];
+        startPositions = new int[INITIAL_CAPACITY];
+        endPositions = new int[INITIAL_CAPACITY];
+        symbolNames = new String[INITIAL_CAPACITY];
+        symbolIds = new HashMap<>();
+    }
+
+    //compilation unit is the node 0
+    public static NodeTable lower(CompilationUnitTree node) {
+        return lower(node, null);
+    }
+
+    //indexes of lowered trees are put to the map unless it's null
+    public static NodeTable lower(CompilationUnitTree node, Map<Tree, Integer> indexes) {
+        NodeTable table = new NodeTable();
+        node.accept(table.new Lowering(indexes), -1);
+        //last children are needed only while children are added
+        table.lastChildren = null;
+        return table;
+    }
+
+    //trees of loaded table are views of its nodes, line map is built from the source
+    public static NodeTable read(ByteBuffer buffer, CharSequence source) {
+        NodeTable table = new NodeTable();
+        int size = buffer.getInt();
+        table.size = size;
+        table.symbolsCount = buffer.getInt();
+        table.kinds = new byte[size];
+        table.firstChildren = new int[size];
+        table.nextSiblings = new int[size];
+        table.symbols = new int[size];
+        table.startPositions = new int[size];
+        table.endPositions = new int[size];
+        int start = 0;
+        for (int node = 0; node < size; ++node) {
+            table.kinds[node] = buffer.get();
+            if (table.kinds[node] < 0 || table.kinds[node] >= KINDS.length) {
+                throw new IllegalArgumentException("unknown kind of node " + node);
+            }
+            int firstChild = readVarInt(buffer);
+            int nextSibling = readVarInt(buffer);
+            table.firstChildren[node] = firstChild == 0 ? -1 : node + firstChild;
+            table.nextSiblings[node] = nextSibling == 0 ? -1 : node + nextSibling;
+            table.symbols[node] = readVarInt(buffer) - 1;
+            start += fromZigZag(readVarInt(buffer));
+            table.startPositions[node] = start;
+            table.endPositions[node] = start + fromZigZag(readVarInt(buffer));
+        }
+        table.symbolNames = new String[table.symbolsCount];
+        for (int i = 0; i < table.symbolsCount; ++i) {
+            table.symbolNames[i] = readString(buffer);
+        }
+        table.lastChildren = null;
+        table.symbolIds = null;
+        table.views = new Tree[size];
+        //views are created once, so results of analysis keyed by them stay valid
+        NodeTree.Lines lineMap = new NodeTree.Lines(source);
+        for (int node = 0; node < size; ++node) {
+            table.views[node] = NodeTree.create(table, node, lineMap);
+        }
+        return table;
+    }
+
+    //links go forward, so they are written as small distances, positions as differences
+    //from the previous node, all of them as variable length ints
+    public void write(DataOutputStream output) throws IOException {
+        output.writeInt(size);
+        output.writeInt(symbolsCount);
+        int start = 0;
+        for (int node = 0; node < size; ++node) {
+            output.writeByte(kinds[node]);
+            writeVarInt(output, firstChildren[node] < 0 ? 0 : firstChildren[node] - node);
+            writeVarInt(output, nextSiblings[node] < 0 ? 0 : nextSiblings[node] - node);
+            writeVarInt(output, symbols[node] + 1);
+            writeVarInt(output, toZigZag(startPositions[node] - start));
+            writeVarInt(output, toZigZag(endPositions[node] - startPositions[node]));
+            start = startPositions[node];
+        }
+        for (int i = 0; i < symbolsCount; ++i) {
+            writeString(output, symbolNames[i]);
+        }
+    }
+
+    static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(output, bytes.length);
+        output.write(bytes);
+    }
+
+    static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[readVarInt(buffer)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    //seven bits in every byte, the highest bit is set if more bytes follow
+    static void writeVarInt(DataOutputStream output, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    static int readVarInt(ByteBuffer buffer) {
+        int result = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            byte b = buffer.get();
+            result |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("too long variable length int");
+    }
+
+    private static int toZigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int fromZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Tree.Kind getKind(int node) {
+        return KINDS[kinds[node]];
+    }
+
+    //-1 if node has no children
+    public int getFirstChild(int node) {
+        return firstChildren[node];
+    }
+
+    //-1 for the last child
+    public int getNextSibling(int node) {
+        return nextSiblings[node];
+    }
+
+    public int getSymbol(int node) {
+        return symbols[node];
+    }
+
+    //the same instance for all nodes with the same name
+    public String getName(int node) {
+        return symbols[node] < 0 ? null : symbolNames[symbols[node]];
+    }
+
+    //-1 if no node has this name
+    public int getSymbol(String name) {
+        if (symbolIds == null) {
+            symbolIds = new HashMap<>();
+            for (int i = 0; i < symbolsCount; ++i) {
+                symbolIds.put(symbolNames[i], i);
+            }
+        }
+        Integer symbol = symbolIds.get(name);
+        return symbol == null ? -1 : symbol;
+    }
+
+    public String getSymbolName(int symbol) {
+        return symbolNames[symbol];
+    }
+
+    public int getSymbolsCount() {
+        return symbolsCount;
+    }
+
+    public int getStartPosition(int node) {
+        return startPositions[node];
+    }
+
+    public int getEndPosition(int node) {
+        return endPositions[node];
+    }
+
+    //null if table isn't loaded
+    public Tree getView(int node) {
+        return views == null ? null : views[node];
+    }
+
+    private int add(Tree tree, int parent, int symbol, Map<Tree, Integer> indexes) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            firstChildren = Arrays.copyOf(firstChildren, capacity);
+            lastChildren = Arrays.copyOf(lastChildren, capacity);
+            nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+            symbols = Arrays.copyOf(symbols, capacity);
+            startPositions = Arrays.copyOf(startPositions, capacity);
+            endPositions = Arrays.copyOf(endPositions, capacity);
+        }
+        int node = size++;
+        kinds[node] = (byte) tree.getKind().ordinal();
+        firstChildren[node] = -1;
+        lastChildren[node] = -1;
+        nextSiblings[node] = -1;
+        symbols[node] = symbol;
+        startPositions[node] = (int) tree.getStartPosition();
+        endPositions[node] = (int) tree.getEndPosition();
+        if (indexes != null) {
+            indexes.put(tree, node);
+        }
+        if (parent >= 0) {
+            if (lastChildren[parent] < 0) {
+                firstChildren[parent] = node;
+            } else {
+                nextSiblings[lastChildren[parent]] = node;
+            }
+            lastChildren[parent] = node;
+        }
+        return node;
+    }
+
+    private int intern(String name) {
+        Integer symbol = symbolIds.get(name);
+        if (symbol == null) {
+            if (symbolsCount == symbolNames.length) {
+                symbolNames = Arrays.copyOf(symbolNames, symbolsCount * 2);
+            }
+            symbol = symbolsCount++;
+            symbolNames[symbol] = name;
+            symbolIds.put(name, symbol);
+        }
+        return symbol;
+    }
+
+    //every node is added before its children, which get its index as parent
+    private class Lowering extends SimpleTreeVisitorES6<Void, Integer> {
+        private Map<Tree, Integer> indexes;
+
+        Lowering(Map<Tree, Integer> indexes) {
+            this.indexes = indexes;
+        }
+
+        private int add(Tree tree, int parent, int symbol) {
+            return NodeTable.this.add(tree, parent, symbol, indexes);
+        }
+
+        @Override
+        public Void visitCompilationUnit(CompilationUnitTree node, Integer parent) {
+            return super.visitCompilationUnit(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitVariable(VariableTree node, Integer parent) {
+            return super.visitVariable(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitIdentifier(IdentifierTree node, Integer parent) {
+            add(node, parent, intern(node.getName()));
+            return null;
+        }
+
+        @Override
+        public Void visitFunctionDeclaration(FunctionDeclarationTree node, Integer parent) {
+            return super.visitFunctionDeclaration(node, add(node, parent, intern(node.getName().getName())));
+        }
+
+        @Override
+        public Void visitMemberSelect(MemberSelectTree node, Integer parent) {
+            return super.visitMemberSelect(node, add(node, parent, intern(node.getIdentifier())));
+        }
+
+        @Override
+        public Void visitArrayAccess(ArrayAccessTree node, Integer parent) {
+            return super.visitArrayAccess(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitArrayLiteral(ArrayLiteralTree node, Integer parent) {
+            return super.visitArrayLiteral(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitAssignment(AssignmentTree node, Integer parent) {
+            return super.visitAssignment(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitBinary(BinaryTree node, Integer parent) {
+            return super.visitBinary(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitBlock(BlockTree node, Integer parent) {
+            return super.visitBlock(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitBreak(BreakTree node, Integer parent) {
+            return super.visitBreak(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitCase(CaseTree node, Integer parent) {
+            return super.visitCase(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitCatch(CatchTree node, Integer parent) {
+            return super.visitCatch(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitClassDeclaration(ClassDeclarationTree node, Integer parent) {
+            return super.visitClassDeclaration(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitClassExpression(ClassExpressionTree node, Integer parent) {
+            return super.visitClassExpression(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitCompoundAssignment(CompoundAssignmentTree node, Integer parent) {
+            return super.visitCompoundAssignment(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitConditionalExpression(ConditionalExpressionTree node, Integer parent) {
+            return super.visitConditionalExpression(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitContinue(ContinueTree node, Integer parent) {
+            return super.visitContinue(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitDebugger(DebuggerTree node, Integer parent) {
+            return super.visitDebugger(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitDoWhileLoop(DoWhileLoopTree node, Integer parent) {
+            return super.visitDoWhileLoop(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitEmptyStatement(EmptyStatementTree node, Integer parent) {
+            return super.visitEmptyStatement(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitErroneous(ErroneousTree node, Integer parent) {
+            return super.visitErroneous(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitExportEntry(ExportEntryTree node, Integer parent) {
+            return super.visitExportEntry(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitExpressionStatement(ExpressionStatementTree node, Integer parent) {
+            return super.visitExpressionStatement(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitForInLoop(ForInLoopTree node, Integer parent) {
+            return super.visitForInLoop(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitForLoop(ForLoopTree node, Integer parent) {
+            return super.visitForLoop(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitForOfLoop(ForOfLoopTree node, Integer parent) {
+            return super.visitForOfLoop(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitFunctionCall(FunctionCallTree node, Integer parent) {
+            return super.visitFunctionCall(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitFunctionExpression(FunctionExpressionTree node, Integer parent) {
+            return super.visitFunctionExpression(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitIf(IfTree node, Integer parent) {
+            return super.visitIf(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitImportEntry(ImportEntryTree node, Integer parent) {
+            return super.visitImportEntry(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitInstanceOf(InstanceOfTree node, Integer parent) {
+            return super.visitInstanceOf(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitLabeledStatement(LabeledStatementTree node, Integer parent) {
+            return super.visitLabeledStatement(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitLiteral(LiteralTree node, Integer parent) {
+            Object value = node.getValue();
+            return super.visitLiteral(node, add(node, parent, value == null ? -1 : intern(value.toString())));
+        }
+
+        @Override
+        public Void visitModule(ModuleTree node, Integer parent) {
+            return super.visitModule(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitNew(NewTree node, Integer parent) {
+            return super.visitNew(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitObjectLiteral(ObjectLiteralTree node, Integer parent) {
+            return super.visitObjectLiteral(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitParenthesized(ParenthesizedTree node, Integer parent) {
+            return super.visitParenthesized(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitProperty(PropertyTree node, Integer parent) {
+            return super.visitProperty(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitRegExpLiteral(RegExpLiteralTree node, Integer parent) {
+            return super.visitRegExpLiteral(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitReturn(ReturnTree node, Integer parent) {
+            return super.visitReturn(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitSpread(SpreadTree node, Integer parent) {
+            return super.visitSpread(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitSwitch(SwitchTree node, Integer parent) {
+            return super.visitSwitch(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitTemplateLiteral(TemplateLiteralTree node, Integer parent) {
+            return super.visitTemplateLiteral(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitThrow(ThrowTree node, Integer parent) {
+            return super.visitThrow(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitTry(TryTree node, Integer parent) {
+            return super.visitTry(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitUnary(UnaryTree node, Integer parent) {
+            return super.visitUnary(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitWhileLoop(WhileLoopTree node, Integer parent) {
+            return super.visitWhileLoop(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitWith(WithTree node, Integer parent) {
+            return super.visitWith(node, add(node, parent, -1));
+        }
+
+        @Override
+        public Void visitYield(YieldTree node, Integer parent) {
+            return super.visitYield(node, add(node, parent, -1));
+        }
+    }
+}
@@ -0,0 +1,483 @@
+package main;
+
+import jdk.nashorn.api.tree.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+//node of loaded node table seen as nashorn tree, so it's emitted without parsing,
+//kinds which can't be emitted are visited as unknown trees
+abstract class NodeTree implements Tree {
+    protected NodeTable nodes;
+    protected int node;
+
+    NodeTree(NodeTable nodes, int node) {
+        this.nodes = nodes;
+        this.node = node;
+    }
+
+    static Tree create(NodeTable nodes, int node, LineMap lineMap) {
+        switch (nodes.getKind(node)) {
+            case COMPILATION_UNIT:
+                return new CompilationUnit(nodes, node, lineMap);
+            case VARIABLE:
+                return new Variable(nodes, node);
+            case BLOCK:
+                return new Block(nodes, node);
+            case EXPRESSION_STATEMENT:
+                return new ExpressionStatement(nodes, node);
+            case ASSIGNMENT:
+                return new Assignment(nodes, node);
+            case FUNCTION:
+                return new FunctionDeclaration(nodes, node);
+            case FUNCTION_INVOCATION:
+                return new FunctionCall(nodes, node);
+            case IDENTIFIER:
+                return new Identifier(nodes, node);
+            case RETURN:
+                return new Return(nodes, node);
+            default:
+                Class<? extends Tree> type = nodes.getKind(node).asInterface();
+                if (type == BinaryTree.class) {
+                    return new Binary(nodes, node);
+                } else if (type == UnaryTree.class) {
+                    return new Unary(nodes, node);
+                } else if (type == LiteralTree.class) {
+                    return new Literal(nodes, node);
+                }
+                return new Unknown(nodes, node);
+        }
+    }
+
+    @Override
+    public Kind getKind() {
+        return nodes.getKind(node);
+    }
+
+    @Override
+    public long getStartPosition() {
+        return nodes.getStartPosition(node);
+    }
+
+    @Override
+    public long getEndPosition() {
+        return nodes.getEndPosition(node);
+    }
+
+    //null if there is no such child
+    protected <T extends Tree> T getChild(int index) {
+        int child = nodes.getFirstChild(node);
+        for (int i = 0; i < index && child >= 0; ++i) {
+            child = nodes.getNextSibling(child);
+        }
+        @SuppressWarnings("unchecked")
+        T result = child < 0 ? null : (T) nodes.getView(child);
+        return result;
+    }
+
+    //children from the given one, the last children may be skipped
+    protected <T extends Tree> List<T> getChildren(int from, int skippedLast) {
+        List<T> result = new ArrayList<>();
+        for (int child = nodes.getFirstChild(node); child >= 0; child = nodes.getNextSibling(child)) {
+            @SuppressWarnings("unchecked")
+            T tree = (T) nodes.getView(child);
+            result.add(tree);
+        }
+        return Collections.unmodifiableList(result.subList(Math.min(from, result.size()),
+                Math.max(from, result.size() - skippedLast)));
+    }
+
+    private static class CompilationUnit extends NodeTree implements CompilationUnitTree {
+        private LineMap lineMap;
+
+        CompilationUnit(NodeTable nodes, int node, LineMap lineMap) {
+            super(nodes, node);
+            this.lineMap = lineMap;
+        }
+
+        @Override
+        public List<? extends Tree> getSourceElements() {
+            return getChildren(0, 0);
+        }
+
+        @Override
+        public String getSourceName() {
+            return null;
+        }
+
+        @Override
+        public boolean isStrict() {
+            return false;
+        }
+
+        @Override
+        public LineMap getLineMap() {
+            return lineMap;
+        }
+
+        @Override
+        public ModuleTree getModule() {
+            return null;
+        }
+
+        @Override
+        public <R, D> R accept(TreeVisitor<R, D> visitor, D data) {
+            return visitor.visitCompilationUnit(this, data);
+        }
+    }
+
+    private static class Variable extends NodeTree implements VariableTree {
+        Variable(NodeTable nodes, int node) {
+            super(nodes, node);
+        }
+
+        @Override
+        public ExpressionTree getBinding() {
+            return getChild(0);
+        }
+
+        @Override
+        public ExpressionTree getInitializer() {
+            return getChild(1);
+        }
+
+        @Override
+        public boolean isConst() {
+            return false;
+        }
+
+        @Override
+        public boolean isLet() {
+            return false;
+        }
+
+        @Override
+        public <R, D> R accept(TreeVisitor<R, D> visitor, D data) {
+            return visitor.visitVariable(this, data);
+        }
+    }
+
+    private static class Block extends NodeTree implements BlockTree {
+        Block(NodeTable nodes, int node) {
+            super(nodes, node);
+        }
+
+        @Override
+        public List<? extends StatementTree> getStatements() {
+            return getChildren(0, 0);
+        }
+
+        @Override
+        public <R, D> R accept(TreeVisitor<R, D> visitor, D data) {
+            return visitor.visitBlock(this, data);
+        }
+    }
+
+    private static class ExpressionStatement extends NodeTree implements ExpressionStatementTree {
+        ExpressionStatement(NodeTable nodes, int node) {
+            super(nodes, node);
+        }
+
+        @Override
+        public ExpressionTree getExpression() {
+            return getChild(0);
+        }
+
+        @Override
+        public <R, D> R accept(TreeVisitor<R, D> visitor, D data) {
+            return visitor.visitExpressionStatement(this, data);
+        }
+    }
+
+    private static class Assignment extends NodeTree implements AssignmentTree {
+        Assignment(NodeTable nodes, int node) {
+            super(nodes, node);
+        }
+
+        @Override
+        public ExpressionTree getVariable() {
+            return getChild(0);
+        }
+
+        @Override
+        public ExpressionTree getExpression() {
+            return getChild(1);
+        }
+
+        @Override
+        public <R, D> R accept(TreeVisitor<R, D> visitor, D data) {
+            return visitor.visitAssignment(this, data);
+        }
+    }
+
+    private static class Binary extends NodeTree implements BinaryTree {
+        Binary(NodeTable nodes, int node) {
+            super(nodes, node);
+        }
+
+        @Override
+        public ExpressionTree getLeftOperand() {
+            return getChild(0);
+        }
+
+        @Override
+        public ExpressionTree getRightOperand() {
+            return getChild(1);
+        }
+
+        @Override
+        public <R, D> R accept(TreeVisitor<R, D> visitor, D data) {
+            return visitor.visitBinary(this, data);
+        }
+    }
+
+    private static class Unary extends NodeTree implements UnaryTree {
+        Unary(NodeTable nodes, int node) {
+            super(nodes, node);
+        }
+
+        @Override
+        public ExpressionTree getExpression() {
+            return getChild(0);
+        }
+
+        @Override
+        public <R, D> R accept(TreeVisitor<R, D> visitor, D data) {
+            return visitor.visitUnary(this, data);
+        }
+    }
+
+    private static class FunctionDeclaration extends NodeTree implements FunctionDeclarationTree {
+        //parameters are asked for at every call of the function
+        private List<? extends ExpressionTree> parameters;
+
+        FunctionDeclaration(NodeTable nodes, int node) {
+            super(nodes, node);
+        }
+
+        //name isn't the child of function in node table, so it has no position
+        @Override
+        public IdentifierTree getName() {
+            return new Name(nodes.getName(node));
+        }
+
+        @Override
+        public List<? extends ExpressionTree> getParameters() {
+            if (parameters == null) {
+                parameters = getChildren(0, 1);
+            }
+            return parameters;
+        }
+
+        @Override
+        public BlockTree getBody() {
+            List<Tree> children = getChildren(0, 0);
+            return (BlockTree) children.get(children.size() - 1);
+        }
+
+        @Override
+        public boolean isStrict() {
+            return false;
+        }
+
+        @Override
+        public boolean isGenerator() {
+            return false;
+        }
+
+        @Override
+        public <R, D> R accept(TreeVisitor<R, D> visitor, D data) {
+            return visitor.visitFunctionDeclaration(this, data);
+        }
+    }
+
+    private static class FunctionCall extends NodeTree implements FunctionCallTree {
+        FunctionCall(NodeTable nodes, int node) {
+            super(nodes, node);
+        }
+
+        @Override
+        public ExpressionTree getFunctionSelect() {
+            return getChild(0);
+        }
+
+        @Override
+        public List<? extends ExpressionTree> getArguments() {
+            return getChildren(1, 0);
+        }
+
+        @Override
+        public <R, D> R accept(TreeVisitor<R, D> visitor, D data) {
+            return visitor.visitFunctionCall(this, data);
+        }
+    }
+
+    private static class Identifier extends NodeTree implements IdentifierTree {
+        Identifier(NodeTable nodes, int node) {
+            super(nodes, node);
+        }
+
+        @Override
+        public String getName() {
+            return nodes.getName(node);
+        }
+
+        @Override
+        public boolean isRestParameter() {
+            return false;
+        }
+
+        @Override
+        public boolean isSuper() {
+            return false;
+        }
+
+        @Override
+        public boolean isThis() {
+            return false;
+        }
+
+        @Override
+        public boolean isStar() {
+            return false;
+        }
+
+        @Override
+        public boolean isDefault() {
+            return false;
+        }
+
+        @Override
+        public boolean isStarDefaultStar() {
+            return false;
+        }
+
+        @Override
+        public <R, D> R accept(TreeVisitor<R, D> visitor, D data) {
+            return visitor.visitIdentifier(this, data);
+        }
+    }
+
+    private static class Name extends Identifier {
+        private String name;
+
+        Name(String name) {
+            super(null, -1);
+            this.name = name;
+        }
+
+        @Override
+        public Kind getKind() {
+            return Kind.IDENTIFIER;
+        }
+
+        @Override
+        public long getStartPosition() {
+            return -1;
+        }
+
+        @Override
+        public long getEndPosition() {
+            return -1;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+
+    //value is kept as it's printed, null literal has no value
+    private static class Literal extends NodeTree implements LiteralTree {
+        Literal(NodeTable nodes, int node) {
+            super(nodes, node);
+        }
+
+        @Override
+        public Object getValue() {
+            return nodes.getName(node);
+        }
+
+        @Override
+        public <R, D> R accept(TreeVisitor<R, D> visitor, D data) {
+            return visitor.visitLiteral(this, data);
+        }
+    }
+
+    private static class Return extends NodeTree implements ReturnTree {
+        Return(NodeTable nodes, int node) {
+            super(nodes, node);
+        }
+
+        @Override
+        public ExpressionTree getExpression() {
+            return getChild(0);
+        }
+
+        @Override
+        public <R, D> R accept(TreeVisitor<R, D> visitor, D data) {
+            return visitor.visitReturn(this, data);
+        }
+    }
+
+    private static class Unknown extends NodeTree implements ExpressionTree, StatementTree {
+        Unknown(NodeTable nodes, int node) {
+            super(nodes, node);
+        }
+
+        @Override
+        public <R, D> R accept(TreeVisitor<R, D> visitor, D data) {
+            return visitor.visitUnknown(this, data);
+        }
+    }
+
+    //the same lines and columns as nashorn gives: lines are counted by \n,
+    //columns start after the last \n or \r, but the first character of source is never a break
+    static class Lines implements LineMap {
+        private int[] newLines;
+        private int[] breaks;
+
+        Lines(CharSequence source) {
+            int newLinesCount = 0;
+            int breaksCount = 0;
+            newLines = new int[16];
+            breaks = new int[16];
+            for (int i = 0; i < source.length(); ++i) {
+                char c = source.charAt(i);
+                if (c == '\n') {
+                    if (newLinesCount == newLines.length) {
+                        newLines = Arrays.copyOf(newLines, newLinesCount * 2);
+                    }
+                    newLines[newLinesCount++] = i;
+                }
+                if (i > 0 && (c == '\n' || c == '\r')) {
+                    if (breaksCount == breaks.length) {
+                        breaks = Arrays.copyOf(breaks, breaksCount * 2);
+                    }
+                    breaks[breaksCount++] = i;
+                }
+            }
+            newLines = Arrays.copyOf(newLines, newLinesCount);
+            breaks = Arrays.copyOf(breaks, breaksCount);
+        }
+
+        @Override
+        public long getLineNumber(long position) {
+            return 1 + countBefore(newLines, (int) position);
+        }
+
+        @Override
+        public long getColumnNumber(long position) {
+            int count = countBefore(breaks, (int) position);
+            return count == 0 ? position : position - breaks[count - 1] - 1;
+        }
+
+        //count of positions less than the given one
+        private static int countBefore(int[] positions, int position) {
+            int index = Arrays.binarySearch(positions, position);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package main;
+
+import jdk.nashorn.api.tree.FunctionCallTree;
+import jdk.nashorn.api.tree.FunctionDeclarationTree;
+import jdk.nashorn.api.tree.IdentifierTree;
+import jdk.nashorn.api.tree.Tree;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class ScopeAnalysis {
+    private Map<FunctionDeclarationTree, List<String>> freeVariables;
+    private Set<String> names;
+    private FunctionScope unitScope;
+    private Map<FunctionDeclarationTree, FunctionScope> functionsScopes;
+    private List<FunctionDeclarationTree> liftedFunctions;
+    private Set<Tree> rewrittenStatements;
+    private Map<FunctionCallTree, FunctionDeclarationTree> calledFunctions;
+    private Map<IdentifierTree, FunctionDeclarationTree> referredFunctions;
+
+    public ScopeAnalysis(Map<FunctionDeclarationTree, List<String>> freeVariables, Set<String> names,
+                         FunctionScope unitScope, Map<FunctionDeclarationTree, FunctionScope> functionsScopes,
+                         List<FunctionDeclarationTree> liftedFunctions, Set<Tree> rewrittenStatements,
+                         Map<FunctionCallTree, FunctionDeclarationTree> calledFunctions,
+                         Map<IdentifierTree, FunctionDeclarationTree> referredFunctions) {
+        this.freeVariables = freeVariables;
+        this.names = names;
+        this.unitScope = unitScope;
+        this.functionsScopes = functionsScopes;
+        this.liftedFunctions = liftedFunctions;
+        this.rewrittenStatements = rewrittenStatements;
+        this.calledFunctions = calledFunctions;
+        this.referredFunctions = referredFunctions;
+    }
+
+    //free variables of the function and of lifted functions it calls
+    public List<String> getFreeVariables(FunctionDeclarationTree function) {
+        return freeVariables.getOrDefault(function, Collections.emptyList());
+    }
+
+    //all names of variables and functions used in the compilation unit
+    public Set<String> getNames() {
+        return names;
+    }
+
+    //scope of the compilation unit if function is null
+    public FunctionScope getScope(FunctionDeclarationTree function) {
+        return function == null ? unitScope : functionsScopes.get(function);
+    }
+
+    //nested functions in source order
+    public List<FunctionDeclarationTree> getLiftedFunctions() {
+        return liftedFunctions;
+    }
+
+    //lifted function called by the call, null if the called function isn't lifted
+    public FunctionDeclarationTree getCalledFunction(FunctionCallTree call) {
+        return calledFunctions.get(call);
+    }
+
+    //lifted function the identifier refers to, null if it refers to anything else
+    public FunctionDeclarationTree getReferredFunction(IdentifierTree identifier) {
+        return referredFunctions.get(identifier);
+    }
+
+    //statement needs rewriting if it contains nested function or refers to lifted one,
+    //other statements are printed the same as in source
+    public boolean needsRewriting(Tree statement) {
+        return rewrittenStatements.contains(statement);
+    }
+}
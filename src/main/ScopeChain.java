@@ -0,0 +1,120 @@
+package main;
+
+import jdk.nashorn.api.tree.FunctionDeclarationTree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+//every name is mapped to the stack of blocks where it is declared and of functions declared by it,
+//so resolving it doesn't depend on the depth of nesting
+public class ScopeChain {
+    private Map<String, Binding> bindings;
+    private List<List<Binding>> blocks;
+    private List<Integer> functionsFirstBlocks;
+
+    public ScopeChain() {
+        bindings = new HashMap<>();
+        blocks = new ArrayList<>();
+        functionsFirstBlocks = new ArrayList<>();
+        enterBlock();
+        functionsFirstBlocks.add(0);
+    }
+
+    //returns the same binding (and the same name instance) for all occurrences of name
+    public Binding resolve(String name) {
+        Binding binding = bindings.get(name);
+        if (binding == null) {
+            binding = new Binding(name);
+            bindings.put(name, binding);
+        }
+        return binding;
+    }
+
+    public String intern(String name) {
+        return resolve(name).getName();
+    }
+
+    //every name which was resolved or interned
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(bindings.keySet());
+    }
+
+    public void enterBlock() {
+        blocks.add(new ArrayList<>());
+    }
+
+    public void exitBlock() {
+        for (Binding binding : blocks.remove(blocks.size() - 1)) {
+            binding.size--;
+        }
+    }
+
+    public void enterFunction() {
+        enterBlock();
+        functionsFirstBlocks.add(blocks.size() - 1);
+    }
+
+    public void exitFunction() {
+        functionsFirstBlocks.remove(functionsFirstBlocks.size() - 1);
+        exitBlock();
+    }
+
+    public void declare(Binding binding) {
+        push(binding, null);
+    }
+
+    public void declareFunction(Binding binding, FunctionDeclarationTree function) {
+        push(binding, function);
+    }
+
+    //the innermost function with this name, null if it's shadowed by variable or isn't declared
+    public FunctionDeclarationTree resolveFunction(Binding binding) {
+        return binding.size == 0 ? null : binding.functions[binding.size - 1];
+    }
+
+    //variable declared in the same block hides function
+    private void push(Binding binding, FunctionDeclarationTree function) {
+        int block = blocks.size() - 1;
+        if (binding.size > 0 && binding.blocks[binding.size - 1] == block) {
+            if (function == null) {
+                binding.functions[binding.size - 1] = null;
+            }
+            return;
+        }
+        if (binding.size == binding.blocks.length) {
+            binding.blocks = Arrays.copyOf(binding.blocks, binding.size * 2);
+            binding.functions = Arrays.copyOf(binding.functions, binding.size * 2);
+        }
+        binding.blocks[binding.size] = block;
+        binding.functions[binding.size++] = function;
+        blocks.get(block).add(binding);
+    }
+
+    //true if the innermost declaration of binding belongs to the current function
+    public boolean isOwn(Binding binding) {
+        return binding.size > 0
+                && binding.blocks[binding.size - 1] >= functionsFirstBlocks.get(functionsFirstBlocks.size() - 1);
+    }
+
+    public static class Binding {
+        private String name;
+        private int[] blocks;
+        private FunctionDeclarationTree[] functions;
+        private int size;
+
+        private Binding(String name) {
+            this.name = name;
+            blocks = new int[2];
+            functions = new FunctionDeclarationTree[2];
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package main;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+//source map of version 3 with the single source,
+//mappings are encoded to base64 VLQ as soon as they are added and written to the map if it's streamed,
+//otherwise they are kept in memory until write, about 4-8 chars for every mapping
+public class SourceMap {
+    private static final String BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+    private static final String END = "\"}\n";
+    //StringBuilder or the map being streamed
+    private Appendable mappings;
+    private boolean isStreamed;
+    //the segment being encoded, so it's appended at once
+    private StringBuilder segment = new StringBuilder();
+    private int generatedLine;
+    private int generatedColumn;
+    private int sourceLine;
+    private int sourceColumn;
+    private boolean isLineStarted;
+    private int mappingsCount;
+
+    public SourceMap() {
+        mappings = new StringBuilder();
+    }
+
+    //the beginning of the map is written at once, finish writes the end of it
+    public SourceMap(Appendable out, String file, String source) throws IOException {
+        writeBeginning(out, file, source);
+        mappings = out;
+        isStreamed = true;
+    }
+
+    //mappings have to be added in order of generated positions, lines and columns are zero based
+    public void addMapping(int generatedLine, int generatedColumn, int sourceLine, int sourceColumn) {
+        segment.setLength(0);
+        while (this.generatedLine < generatedLine) {
+            segment.append(';');
+            this.generatedLine++;
+            this.generatedColumn = 0;
+            isLineStarted = false;
+        }
+        if (isLineStarted) {
+            if (sourceLine == this.sourceLine && sourceColumn == this.sourceColumn) {
+                //the previous segment already maps to this position
+                return;
+            }
+            segment.append(',');
+        }
+        encode(generatedColumn - this.generatedColumn);
+        //index of the source
+        encode(0);
+        encode(sourceLine - this.sourceLine);
+        encode(sourceColumn - this.sourceColumn);
+        append(segment);
+        this.generatedColumn = generatedColumn;
+        this.sourceLine = sourceLine;
+        this.sourceColumn = sourceColumn;
+        isLineStarted = true;
+        mappingsCount++;
+    }
+
+    public int getMappingsCount() {
+        return mappingsCount;
+    }
+
+    public void write(Appendable out, String file, String source) throws IOException {
+        if (isStreamed) {
+            throw new IllegalStateException("source map is already written");
+        }
+        writeBeginning(out, file, source);
+        out.append((StringBuilder) mappings).append(END);
+    }
+
+    //streamed map is complete after it
+    public void finish() throws IOException {
+        if (!isStreamed) {
+            throw new IllegalStateException("source map isn't streamed");
+        }
+        mappings.append(END);
+    }
+
+    private static void writeBeginning(Appendable out, String file, String source) throws IOException {
+        out.append("{\"version\":3,\"file\":");
+        printString(out, file);
+        out.append(",\"sources\":[");
+        printString(out, source);
+        out.append("],\"names\":[],\"mappings\":\"");
+    }
+
+    private void append(CharSequence encoded) {
+        try {
+            mappings.append(encoded);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void encode(int value) {
+        //sign is stored in the lowest bit
+        int rest = value < 0 ? (-value << 1) | 1 : value << 1;
+        do {
+            int digit = rest & 31;
+            rest >>>= 5;
+            if (rest != 0) {
+                digit |= 32;
+            }
+            segment.append(BASE64.charAt(digit));
+        } while (rest != 0);
+    }
+
+    static void printString(Appendable out, String value) throws IOException {
+        out.append('"');
+        for (int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < ' ') {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+
+    //mappings of code which is printed later at the position unknown yet,
+    //generated positions are relative to the beginning of this code
+    public static class Segments {
+        private int[] positions = new int[32];
+        private int size;
+
+        public void add(int generatedLine, int generatedColumn, int sourceLine, int sourceColumn) {
+            if (size + 4 > positions.length) {
+                positions = Arrays.copyOf(positions, positions.length * 2);
+            }
+            positions[size++] = generatedLine;
+            positions[size++] = generatedColumn;
+            positions[size++] = sourceLine;
+            positions[size++] = sourceColumn;
+        }
+
+        public int getCount() {
+            return size / 4;
+        }
+
+        //removes mappings added after the first count ones
+        public void truncate(int count) {
+            size = Math.min(size, count * 4);
+        }
+
+        //only the first line is shifted by column
+        public void addTo(SourceMap sourceMap, int line, int column) {
+            for (int i = 0; i < size; i += 4) {
+                int generatedLine = positions[i];
+                int generatedColumn = generatedLine == 0 ? column + positions[i + 1] : positions[i + 1];
+                sourceMap.addMapping(line + generatedLine, generatedColumn, positions[i + 2], positions[i + 3]);
+            }
+        }
+
+        public void addTo(Segments segments, int line, int column) {
+            for (int i = 0; i < size; i += 4) {
+                int generatedLine = positions[i];
+                int generatedColumn = generatedLine == 0 ? column + positions[i + 1] : positions[i + 1];
+                segments.add(line + generatedLine, generatedColumn, positions[i + 2], positions[i + 3]);
+            }
+        }
+    }
+}
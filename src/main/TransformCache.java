@@ -0,0 +1,185 @@
+package main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Stream;
+
+//transformed files and analyzed units stored by hash of the input and version of transformer, least recently used are evicted
+public class TransformCache {
+    private static final String ENTRY_EXTENSION = ".js";
+    private static final String TEMP_EXTENSION = ".tmp";
+    //temporary files older than that are left by processes died before moving them to entries,
+    //newer ones may be being written by other process using the same directory
+    private static final long STALE_TEMP_MILLIS = 10 * 60 * 1000;
+    private Path directory;
+    private long maxSize;
+    private long size;
+    private LinkedHashMap<String, Long> entriesSizes;
+
+    public TransformCache(Path directory, long maxSize) throws IOException {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        entriesSizes = new LinkedHashMap<>(16, 0.75f, true);
+        Files.createDirectories(directory);
+        List<Path> entries = new ArrayList<>();
+        List<Path> temps = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String fileName = file.getFileName().toString();
+                if (fileName.endsWith(ENTRY_EXTENSION)) {
+                    entries.add(file);
+                } else if (fileName.endsWith(TEMP_EXTENSION)) {
+                    temps.add(file);
+                }
+            }
+        }
+        deleteStaleTemps(temps);
+        Map<Path, FileTime> accessTimes = new HashMap<>();
+        for (Path entry : entries) {
+            accessTimes.put(entry, Files.getLastModifiedTime(entry));
+        }
+        entries.sort(Comparator.comparing(accessTimes::get));
+        for (Path entry : entries) {
+            String fileName = entry.getFileName().toString();
+            long entrySize = Files.size(entry);
+            entriesSizes.put(fileName.substring(0, fileName.length() - ENTRY_EXTENSION.length()), entrySize);
+            size += entrySize;
+        }
+        evict();
+    }
+
+    private static void deleteStaleTemps(List<Path> temps) throws IOException {
+        long staleTime = System.currentTimeMillis() - STALE_TEMP_MILLIS;
+        for (Path temp : temps) {
+            try {
+                if (Files.getLastModifiedTime(temp).toMillis() < staleTime) {
+                    Files.deleteIfExists(temp);
+                }
+            } catch (NoSuchFileException e) {
+                //moved to entry by other process
+            }
+        }
+    }
+
+    public static String key(byte[] content, String transformerVersion) {
+        return key(ByteBuffer.wrap(content), transformerVersion);
+    }
+
+    //content may be mapped file, it's consumed to its limit
+    public static String key(ByteBuffer content, String transformerVersion) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(transformerVersion.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(content);
+            StringBuilder key = new StringBuilder();
+            for (byte b : digest.digest()) {
+                key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 isn't available", e);
+        }
+    }
+
+    //copies cached output to target, returns false if there is no such entry,
+    //target is replaced at once, so interrupted or concurrent restore never leaves it truncated
+    public boolean restore(String key, Path target) throws IOException {
+        synchronized (this) {
+            if (entriesSizes.get(key) == null) {
+                return false;
+            }
+        }
+        Path entry = entryPath(key);
+        Path absoluteTarget = target.toAbsolutePath();
+        Path temp = Files.createTempFile(absoluteTarget.getParent(), absoluteTarget.getFileName().toString(),
+                TEMP_EXTENSION);
+        try {
+            Files.copy(entry, temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            //evicted by another worker or process
+            forget(key);
+            return false;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return true;
+    }
+
+    //cached entry mapped read only, null if there is no such entry
+    public ByteBuffer map(String key) throws IOException {
+        synchronized (this) {
+            if (entriesSizes.get(key) == null) {
+                return null;
+            }
+        }
+        Path entry = entryPath(key);
+        //mapping stays valid after channel is closed
+        try (FileChannel channel = FileChannel.open(entry, StandardOpenOption.READ)) {
+            ByteBuffer result = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            return result;
+        } catch (NoSuchFileException e) {
+            forget(key);
+            return null;
+        }
+    }
+
+    public void store(String key, Path output) throws IOException {
+        Path temp = Files.createTempFile(directory, key, TEMP_EXTENSION);
+        try {
+            Files.copy(output, temp, StandardCopyOption.REPLACE_EXISTING);
+            add(key, temp);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public void store(String key, byte[] content) throws IOException {
+        Path temp = Files.createTempFile(directory, key, TEMP_EXTENSION);
+        try {
+            Files.write(temp, content);
+            add(key, temp);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void add(String key, Path temp) throws IOException {
+        long entrySize = Files.size(temp);
+        Files.move(temp, entryPath(key), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        synchronized (this) {
+            Long oldSize = entriesSizes.put(key, entrySize);
+            size += entrySize - (oldSize == null ? 0 : oldSize);
+            evict();
+        }
+    }
+
+    private synchronized void forget(String key) {
+        Long entrySize = entriesSizes.remove(key);
+        size -= entrySize == null ? 0 : entrySize;
+    }
+
+    private synchronized void evict() throws IOException {
+        Iterator<Map.Entry<String, Long>> eldest = entriesSizes.entrySet().iterator();
+        while (size > maxSize && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            Files.deleteIfExists(entryPath(entry.getKey()));
+            size -= entry.getValue();
+            eldest.remove();
+        }
+    }
+
+    private Path entryPath(String key) {
+        return directory.resolve(key + ENTRY_EXTENSION);
+    }
+}
@@ -0,0 +1,116 @@
+package main;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+//sends files to the running TransformServer instead of transforming them in this jvm,
+//loads no parser, so it starts much faster than DestructuringAssignmentTransformer
+public class TransformClient {
+    public static final int DEFAULT_PORT = 7931;
+    private static final String PORT_OPTION = "--port";
+    private static final int MAX_ATTEMPTS = 5;
+    private static final int DEFAULT_RETRY_DELAY = 1;
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    public static void main(String[] args) throws InterruptedException {
+        int port = DEFAULT_PORT;
+        int first = 0;
+        if (args.length > 1 && PORT_OPTION.equals(args[0])) {
+            try {
+                port = Integer.parseInt(args[1]);
+            } catch (NumberFormatException e) {
+                System.err.println("port has to be number: " + args[1]);
+                System.exit(2);
+            }
+            first = 2;
+        }
+        if (args.length - first != 2) {
+            System.err.println("need input and output files: [" + PORT_OPTION + " <port>] <input> <output>");
+            System.exit(2);
+        }
+        if (!transformFile(port, args[first], args[first + 1])) {
+            System.exit(1);
+        }
+    }
+
+    //returns false if file wasn't transformed, the reason is printed to System.err,
+    //refused requests are repeated after the time server asks to wait
+    public static boolean transformFile(int port, String inputFile, String outputFile) throws InterruptedException {
+        try {
+            byte[] source = Files.readAllBytes(Paths.get(inputFile));
+            for (int attempt = 1; ; ++attempt) {
+                HttpURLConnection connection = (HttpURLConnection) new URL("http", InetAddress.getLoopbackAddress()
+                        .getHostAddress(), port, TransformServer.TRANSFORM_PATH + "?" + TransformServer.NAME_PARAMETER
+                        + "=" + URLEncoder.encode(inputFile, StandardCharsets.UTF_8)).openConnection();
+                connection.setRequestMethod("POST");
+                connection.setDoOutput(true);
+                connection.setFixedLengthStreamingMode(source.length);
+                try (OutputStream body = connection.getOutputStream()) {
+                    body.write(source);
+                }
+                int status = connection.getResponseCode();
+                if (status == 503 && attempt < MAX_ATTEMPTS) {
+                    String retryAfter = connection.getHeaderField("Retry-After");
+                    if (connection.getErrorStream() != null) {
+                        connection.getErrorStream().close();
+                    }
+                    Thread.sleep(1000L * getRetryDelay(retryAfter));
+                    continue;
+                }
+                if (status != 200) {
+                    try (InputStream error = connection.getErrorStream()) {
+                        System.err.print(error == null ? "server responded " + status + "\n"
+                                : new String(error.readAllBytes(), StandardCharsets.UTF_8));
+                    }
+                    return false;
+                }
+                List<String> warnings = connection.getHeaderFields().get(TransformServer.WARNING_HEADER);
+                if (warnings != null) {
+                    warnings.forEach(System.err::println);
+                }
+                Path out = Paths.get(outputFile).toAbsolutePath();
+                Files.createDirectories(out.getParent());
+                //output is replaced at once, so it's never seen truncated
+                Path temp = Files.createTempFile(out.getParent(), out.getFileName().toString(), TEMP_EXTENSION);
+                try {
+                    try (InputStream output = connection.getInputStream()) {
+                        Files.write(temp, output.readAllBytes());
+                    }
+                    Files.move(temp, out, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+                return true;
+            }
+        } catch (IOException e) {
+            System.err.println("Cant transform by server: " + e.getMessage());
+            return false;
+        }
+    }
+
+    //seconds to wait, the default one if header is missing, is date or is broken
+    public static int getRetryDelay(String retryAfter) {
+        if (retryAfter != null) {
+            try {
+                int seconds = Integer.parseInt(retryAfter.trim());
+                if (seconds >= 0) {
+                    return seconds;
+                }
+            } catch (NumberFormatException e) {
+                //falls back to the default delay
+            }
+        }
+        return DEFAULT_RETRY_DELAY;
+    }
+}
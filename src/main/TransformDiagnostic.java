@@ -0,0 +1,46 @@
+package main;
+
+public class TransformDiagnostic {
+    //warnings don't prevent transformation
+    public enum Kind {
+        ERROR, WARNING
+    }
+
+    private Kind kind;
+    private String message;
+    private long line;
+    private long column;
+
+    //line and column are -1 when position is unknown
+    public TransformDiagnostic(String message, long line, long column) {
+        this(Kind.ERROR, message, line, column);
+    }
+
+    public TransformDiagnostic(Kind kind, String message, long line, long column) {
+        this.kind = kind;
+        this.message = message;
+        this.line = line;
+        this.column = column;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public long getColumn() {
+        return column;
+    }
+
+    @Override
+    public String toString() {
+        return message;
+    }
+}
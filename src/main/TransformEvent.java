@@ -0,0 +1,42 @@
+package main;
+
+import jdk.jfr.*;
+
+//recorded by Java Flight Recorder for every transformation
+@Name("main.Transform")
+@Label("Transform")
+@Category("DestructuringAssignmentTransformer")
+@StackTrace(false)
+public class TransformEvent extends Event {
+    @Label("Source")
+    String sourceName;
+
+    @Label("Success")
+    boolean success;
+
+    @Label("Parse")
+    @Timespan
+    long parseNanos;
+
+    @Label("Analysis")
+    @Timespan
+    long analysisNanos;
+
+    @Label("Emission")
+    @Timespan
+    long emissionNanos;
+
+    @Label("Write")
+    @Timespan
+    long writeNanos;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocatedBytes;
+
+    @Label("Nodes")
+    long nodesCount;
+
+    @Label("Lifted Functions")
+    long liftedFunctionsCount;
+}
@@ -0,0 +1,90 @@
+package main;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+//wall time and allocated bytes of every phase of one transformation
+public class TransformMetrics {
+    public enum Phase { PARSE, ANALYSIS, EMISSION, WRITE }
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean ALLOCATIONS_SUPPORTED = THREADS instanceof com.sun.management.ThreadMXBean
+            && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemorySupported()
+            && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemoryEnabled();
+    private long[] wallNanos;
+    private long[] allocatedBytes;
+    private long nodesCount;
+    private long liftedFunctionsCount;
+    private long lastMarkNanos;
+    private long lastMarkAllocatedBytes;
+
+    public TransformMetrics() {
+        wallNanos = new long[Phase.values().length];
+        allocatedBytes = new long[Phase.values().length];
+        mark();
+    }
+
+    //everything since previous mark is counted to given phase
+    public void mark(Phase phase) {
+        long previousNanos = lastMarkNanos;
+        long previousAllocatedBytes = lastMarkAllocatedBytes;
+        mark();
+        wallNanos[phase.ordinal()] += lastMarkNanos - previousNanos;
+        allocatedBytes[phase.ordinal()] += lastMarkAllocatedBytes - previousAllocatedBytes;
+    }
+
+    //previous mark isn't counted to any phase
+    public void mark() {
+        lastMarkNanos = System.nanoTime();
+        lastMarkAllocatedBytes = currentThreadAllocatedBytes();
+    }
+
+    //allocations of other threads working on the phase, they aren't seen by marks of this thread
+    public void addAllocatedBytes(Phase phase, long bytes) {
+        allocatedBytes[phase.ordinal()] += bytes;
+    }
+
+    public long getWallNanos(Phase phase) {
+        return wallNanos[phase.ordinal()];
+    }
+
+    //0 if JVM doesn't count allocations of threads
+    public long getAllocatedBytes(Phase phase) {
+        return allocatedBytes[phase.ordinal()];
+    }
+
+    public long getNodesCount() {
+        return nodesCount;
+    }
+
+    public void setNodesCount(long nodesCount) {
+        this.nodesCount = nodesCount;
+    }
+
+    public long getLiftedFunctionsCount() {
+        return liftedFunctionsCount;
+    }
+
+    public void setLiftedFunctionsCount(long liftedFunctionsCount) {
+        this.liftedFunctionsCount = liftedFunctionsCount;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (Phase phase : Phase.values()) {
+            result.append(phase.name().toLowerCase()).append(" ")
+                    .append(String.format("%.3f ms %d KB", getWallNanos(phase) / 1e6, getAllocatedBytes(phase) / 1024))
+                    .append(", ");
+        }
+        return result.append("nodes ").append(nodesCount)
+                .append(", lifted functions ").append(liftedFunctionsCount).toString();
+    }
+
+    static long currentThreadAllocatedBytes() {
+        if (!ALLOCATIONS_SUPPORTED) {
+            return 0;
+        }
+        return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
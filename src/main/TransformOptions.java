@@ -0,0 +1,94 @@
+package main;
+
+public class TransformOptions {
+    private boolean minimalParentheses;
+    private boolean compact;
+    private boolean shortenLiftedParameters;
+    private boolean streamLiftedFunctions;
+    private boolean parallelEmission;
+    private boolean copyUnchanged;
+    private boolean recoverable;
+
+    //only parentheses required by precedence and associativity of operators are printed
+    public boolean isMinimalParentheses() {
+        return minimalParentheses;
+    }
+
+    public TransformOptions setMinimalParentheses(boolean minimalParentheses) {
+        this.minimalParentheses = minimalParentheses;
+        return this;
+    }
+
+    //no line separators and only spaces which separate tokens are printed
+    public boolean isCompact() {
+        return compact;
+    }
+
+    public TransformOptions setCompact(boolean compact) {
+        this.compact = compact;
+        return this;
+    }
+
+    //free variables passed to lifted functions get short names inside of them
+    public boolean isShortenLiftedParameters() {
+        return shortenLiftedParameters;
+    }
+
+    public TransformOptions setShortenLiftedParameters(boolean shortenLiftedParameters) {
+        this.shortenLiftedParameters = shortenLiftedParameters;
+        return this;
+    }
+
+    //lifted functions are written as soon as they are complete instead of keeping them until the end,
+    //so they follow the code in order of completion
+    public boolean isStreamLiftedFunctions() {
+        return streamLiftedFunctions;
+    }
+
+    public TransformOptions setStreamLiftedFunctions(boolean streamLiftedFunctions) {
+        this.streamLiftedFunctions = streamLiftedFunctions;
+        return this;
+    }
+
+    //source elements of the file are emitted by workers of fork join pool,
+    //output is the same, so it isn't part of cache key
+    public boolean isParallelEmission() {
+        return parallelEmission;
+    }
+
+    public TransformOptions setParallelEmission(boolean parallelEmission) {
+        this.parallelEmission = parallelEmission;
+        return this;
+    }
+
+    //statements which need no rewriting are copied from source with their formatting,
+    //it isn't done in compact mode
+    public boolean isCopyUnchanged() {
+        return copyUnchanged;
+    }
+
+    public TransformOptions setCopyUnchanged(boolean copyUnchanged) {
+        this.copyUnchanged = copyUnchanged;
+        return this;
+    }
+
+    //unsupported statements are copied from source instead of failing the whole file,
+    //every copied statement is reported by warning
+    public boolean isRecoverable() {
+        return recoverable;
+    }
+
+    public TransformOptions setRecoverable(boolean recoverable) {
+        this.recoverable = recoverable;
+        return this;
+    }
+
+    //options which change output are part of cache key
+    @Override
+    public String toString() {
+        return "minimalParentheses=" + minimalParentheses + " compact=" + compact
+                + " shortenLiftedParameters=" + shortenLiftedParameters
+                + " streamLiftedFunctions=" + streamLiftedFunctions + " copyUnchanged=" + copyUnchanged
+                + " recoverable=" + recoverable;
+    }
+}
@@ -0,0 +1,47 @@
+package main;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+//one json object per transformed file with its diagnostics,
+//lines are flushed as soon as they are written, so the report can be followed in watch mode
+public class TransformReport implements Closeable {
+    private Writer out;
+
+    public TransformReport(Path path) throws IOException {
+        out = Files.newBufferedWriter(path);
+    }
+
+    public synchronized void add(String file, TransformResult result) throws IOException {
+        out.append("{\"file\":");
+        SourceMap.printString(out, file);
+        out.append(",\"success\":").append(String.valueOf(result.isSuccess())).append(",\"diagnostics\":[");
+        for (int i = 0; i < result.getDiagnostics().size(); ++i) {
+            TransformDiagnostic diagnostic = result.getDiagnostics().get(i);
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append("{\"kind\":\"").append(diagnostic.getKind().name()).append("\",\"line\":")
+                    .append(String.valueOf(diagnostic.getLine())).append(",\"column\":")
+                    .append(String.valueOf(diagnostic.getColumn())).append(",\"message\":");
+            SourceMap.printString(out, diagnostic.getMessage());
+            out.append('}');
+        }
+        out.append("]}\n");
+        out.flush();
+    }
+
+    //output of the file is restored from cache, so its diagnostics aren't known
+    public synchronized void addCached(String file) throws IOException {
+        out.append("{\"file\":");
+        SourceMap.printString(out, file);
+        out.append(",\"success\":true,\"cached\":true}\n");
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,35 @@
+package main;
+
+import java.util.List;
+
+public class TransformResult {
+    private boolean success;
+    private String output;
+    private List<TransformDiagnostic> diagnostics;
+    private TransformMetrics metrics;
+
+    public TransformResult(boolean success, String output, List<TransformDiagnostic> diagnostics,
+                           TransformMetrics metrics) {
+        this.success = success;
+        this.output = output;
+        this.diagnostics = diagnostics;
+        this.metrics = metrics;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    //null if code was written to the given Writer
+    public String getOutput() {
+        return output;
+    }
+
+    public List<TransformDiagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
+    public TransformMetrics getMetrics() {
+        return metrics;
+    }
+}
@@ -0,0 +1,264 @@
+package main;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//transforms sources posted from the local machine, so transformation of a file doesn't pay for start of jvm,
+//requests wait in queue for workers with warm parsers, they are refused with 503 when there are as many
+//requests queued or being transformed as capacity allows, before their bodies are read
+public class TransformServer implements Closeable {
+    public static final String TRANSFORM_PATH = "/transform";
+    public static final String NAME_PARAMETER = "name";
+    //warnings of successful transformation, one header for every diagnostic
+    public static final String WARNING_HEADER = "Transform-Warning";
+    private static final String DEFAULT_SOURCE_NAME = "<request>";
+    private static final int RETRY_AFTER_SECONDS = 1;
+    //time given to exchanges to send their responses on close
+    private static final int STOP_DELAY_SECONDS = 1;
+    private static final int MAX_BODY_SIZE = 16 * 1024 * 1024;
+    //exchange stops waiting for the result after it, so its permit is never lost
+    private static final int RESULT_TIMEOUT_SECONDS = 60;
+    //parser and visitors recurse on nesting of source, so workers get bigger stack than default one
+    private static final long WORKER_STACK_SIZE = 64 * 1024 * 1024;
+    //busy worker takes small requests along with its own one, so their handling isn't paid by other workers
+    private static final int MAX_BATCH_SIZE = 16;
+    private static final int MAX_BATCH_LENGTH = 64 * 1024;
+    private Transformer transformer;
+    private HttpServer server;
+    //exchanges wait for their results on threads of their own
+    private ExecutorService exchanges;
+    private BlockingQueue<Request> queue;
+    //one permit for every request which is queued or being transformed
+    private Semaphore permits;
+    private List<Thread> workers;
+    //workers waiting for the next request, the others are busy
+    private AtomicInteger idleWorkers;
+    //requests aren't queued after close, so every queued request gets its result
+    private boolean isClosed;
+
+    //port 0 lets system choose free one
+    public TransformServer(Transformer transformer, int port, int workersCount, int capacity)
+            throws IOException {
+        if (workersCount < 1 || capacity < 1) {
+            throw new IllegalArgumentException("count of workers and capacity have to be positive");
+        }
+        this.transformer = transformer;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext(TRANSFORM_PATH, this::handle);
+        exchanges = Executors.newCachedThreadPool();
+        server.setExecutor(exchanges);
+        queue = new LinkedBlockingQueue<>();
+        permits = new Semaphore(capacity);
+        workers = new ArrayList<>();
+        idleWorkers = new AtomicInteger();
+        for (int i = 0; i < workersCount; ++i) {
+            Thread worker = new Thread(null, this::work, "transform-worker-" + i, WORKER_STACK_SIZE);
+            worker.setDaemon(true);
+            workers.add(worker);
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void start() {
+        workers.forEach(Thread::start);
+        server.start();
+    }
+
+    //queued requests fail before server is stopped, so their exchanges are answered instead of hanging,
+    //the ones being transformed get the stop delay to finish
+    @Override
+    public void close() {
+        List<Request> rest = new ArrayList<>();
+        synchronized (this) {
+            isClosed = true;
+            queue.drainTo(rest);
+        }
+        for (Request request : rest) {
+            request.result.completeExceptionally(new CancellationException("server is stopped"));
+        }
+        server.stop(STOP_DELAY_SECONDS);
+        workers.forEach(Thread::interrupt);
+        exchanges.shutdown();
+    }
+
+    //false if request is refused, otherwise permit has to be released when the exchange gets result
+    private synchronized boolean acquire() {
+        return !isClosed && permits.tryAcquire();
+    }
+
+    //false if server is closed after permit was acquired
+    private synchronized boolean offer(Request request) {
+        if (isClosed) {
+            return false;
+        }
+        queue.add(request);
+        return true;
+    }
+
+    //requests are taken one by one while other workers are idle, so all of them are busy during a burst,
+    //when none of them waits small requests are batched to the taken one
+    private void work() {
+        List<Request> batch = new ArrayList<>();
+        try {
+            while (true) {
+                idleWorkers.incrementAndGet();
+                Request request;
+                try {
+                    request = queue.take();
+                } finally {
+                    idleWorkers.decrementAndGet();
+                }
+                batch.add(request);
+                int length = request.source.length();
+                while (batch.size() < MAX_BATCH_SIZE && length < MAX_BATCH_LENGTH && idleWorkers.get() == 0) {
+                    Request next = queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    length += next.source.length();
+                }
+                for (Request next : batch) {
+                    transform(next);
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            //server is stopped
+        }
+    }
+
+    //result is always completed, whatever is thrown by transformation
+    private void transform(Request request) {
+        if (request.result.isDone()) {
+            //exchange doesn't wait for it any more
+            return;
+        }
+        StringBuilder output = new StringBuilder();
+        try {
+            TransformResult result = transformer.transform(request.sourceName, request.source, output, null);
+            request.result.complete(new TransformResult(result.isSuccess(),
+                    result.isSuccess() ? output.toString() : null, result.getDiagnostics(), result.getMetrics()));
+        } catch (Throwable e) {
+            request.result.completeExceptionally(e);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "only POST is supported\n");
+                return;
+            }
+            if (!acquire()) {
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(RETRY_AFTER_SECONDS));
+                respond(exchange, 503, "transformation queue is full\n");
+                return;
+            }
+            TransformResult result;
+            Request request = null;
+            try {
+                String source = read(exchange.getRequestBody());
+                if (source == null) {
+                    respond(exchange, 413, "source is bigger than " + MAX_BODY_SIZE + " bytes\n");
+                    return;
+                }
+                request = new Request(getSourceName(exchange.getRequestURI().getRawQuery()), source);
+                if (!offer(request)) {
+                    respond(exchange, 500, "server is stopped\n");
+                    return;
+                }
+                result = request.result.get(RESULT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                //queued request is skipped by worker
+                request.result.cancel(false);
+                respond(exchange, 500, "transformation isn't finished in " + RESULT_TIMEOUT_SECONDS + " seconds\n");
+                return;
+            } catch (ExecutionException e) {
+                respond(exchange, 500, e.getCause() + "\n");
+                return;
+            } catch (CancellationException e) {
+                respond(exchange, 500, e.getMessage() + "\n");
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                respond(exchange, 500, "server is stopped\n");
+                return;
+            } finally {
+                permits.release();
+            }
+            if (result.isSuccess()) {
+                for (TransformDiagnostic diagnostic : result.getDiagnostics()) {
+                    exchange.getResponseHeaders().add(WARNING_HEADER, diagnostic.toString().replace('\n', ' '));
+                }
+                respond(exchange, 200, result.getOutput());
+            } else {
+                StringBuilder diagnostics = new StringBuilder();
+                for (TransformDiagnostic diagnostic : result.getDiagnostics()) {
+                    diagnostics.append(diagnostic).append('\n');
+                }
+                respond(exchange, 422, diagnostics.toString());
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static String getSourceName(String query) {
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith(NAME_PARAMETER + "=")) {
+                    return URLDecoder.decode(parameter.substring(NAME_PARAMETER.length() + 1),
+                            StandardCharsets.UTF_8);
+                }
+            }
+        }
+        return DEFAULT_SOURCE_NAME;
+    }
+
+    //null if body is bigger than allowed
+    private static String read(InputStream input) throws IOException {
+        byte[] body = input.readNBytes(MAX_BODY_SIZE + 1);
+        return body.length > MAX_BODY_SIZE ? null : new String(body, StandardCharsets.UTF_8);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type",
+                (status == 200 ? "application/javascript" : "text/plain") + "; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(bytes);
+            }
+        }
+    }
+
+    private static class Request {
+        private String sourceName;
+        private String source;
+        private CompletableFuture<TransformResult> result;
+
+        Request(String sourceName, String source) {
+            this.sourceName = sourceName;
+            this.source = source;
+            result = new CompletableFuture<>();
+        }
+    }
+}
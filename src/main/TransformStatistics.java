@@ -0,0 +1,100 @@
+package main;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+//sums metrics of all transformations, can be watched through JMX
+public class TransformStatistics implements TransformStatisticsMXBean {
+    public static final String OBJECT_NAME = "main:type=TransformStatistics";
+    private LongAdder filesCount;
+    private LongAdder failedFilesCount;
+    private LongAdder[] wallNanos;
+    private LongAdder allocatedBytes;
+    private LongAdder nodesCount;
+    private LongAdder liftedFunctionsCount;
+
+    public TransformStatistics() {
+        filesCount = new LongAdder();
+        failedFilesCount = new LongAdder();
+        wallNanos = new LongAdder[TransformMetrics.Phase.values().length];
+        for (int i = 0; i < wallNanos.length; ++i) {
+            wallNanos[i] = new LongAdder();
+        }
+        allocatedBytes = new LongAdder();
+        nodesCount = new LongAdder();
+        liftedFunctionsCount = new LongAdder();
+    }
+
+    public void add(TransformMetrics metrics, boolean success) {
+        filesCount.increment();
+        if (!success) {
+            failedFilesCount.increment();
+        }
+        for (TransformMetrics.Phase phase : TransformMetrics.Phase.values()) {
+            wallNanos[phase.ordinal()].add(metrics.getWallNanos(phase));
+            allocatedBytes.add(metrics.getAllocatedBytes(phase));
+        }
+        nodesCount.add(metrics.getNodesCount());
+        liftedFunctionsCount.add(metrics.getLiftedFunctionsCount());
+    }
+
+    public void register() throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+    }
+
+    @Override
+    public long getFilesCount() {
+        return filesCount.sum();
+    }
+
+    @Override
+    public long getFailedFilesCount() {
+        return failedFilesCount.sum();
+    }
+
+    @Override
+    public long getParseNanos() {
+        return wallNanos[TransformMetrics.Phase.PARSE.ordinal()].sum();
+    }
+
+    @Override
+    public long getAnalysisNanos() {
+        return wallNanos[TransformMetrics.Phase.ANALYSIS.ordinal()].sum();
+    }
+
+    @Override
+    public long getEmissionNanos() {
+        return wallNanos[TransformMetrics.Phase.EMISSION.ordinal()].sum();
+    }
+
+    @Override
+    public long getWriteNanos() {
+        return wallNanos[TransformMetrics.Phase.WRITE.ordinal()].sum();
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    @Override
+    public long getNodesCount() {
+        return nodesCount.sum();
+    }
+
+    @Override
+    public long getLiftedFunctionsCount() {
+        return liftedFunctionsCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("files %d (failed %d), parse %.3f ms, analysis %.3f ms, emission %.3f ms, "
+                        + "write %.3f ms, allocated %d KB, nodes %d, lifted functions %d",
+                getFilesCount(), getFailedFilesCount(), getParseNanos() / 1e6, getAnalysisNanos() / 1e6,
+                getEmissionNanos() / 1e6, getWriteNanos() / 1e6, getAllocatedBytes() / 1024,
+                getNodesCount(), getLiftedFunctionsCount());
+    }
+}
@@ -0,0 +1,21 @@
+package main;
+
+public interface TransformStatisticsMXBean {
+    long getFilesCount();
+
+    long getFailedFilesCount();
+
+    long getParseNanos();
+
+    long getAnalysisNanos();
+
+    long getEmissionNanos();
+
+    long getWriteNanos();
+
+    long getAllocatedBytes();
+
+    long getNodesCount();
+
+    long getLiftedFunctionsCount();
+}
@@ -0,0 +1,230 @@
+package main;
+
+import jdk.nashorn.api.scripting.NashornException;
+import jdk.nashorn.api.tree.*;
+
+import java.io.*;
+import java.nio.CharBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+//create once and share: every thread keeps its own warmed up parser
+public class Transformer {
+    //change it whenever output for the same input changes
+    public static final String VERSION = "2";
+    private static final String DEFAULT_SOURCE_NAME = "<input>";
+    private static final int BUFFER_SIZE = 8192;
+    private ThreadLocal<Parser> parsers;
+    private TransformStatistics statistics;
+    private TransformOptions options;
+
+    public Transformer() {
+        this(new TransformOptions());
+    }
+
+    public Transformer(TransformOptions options) {
+        parsers = ThreadLocal.withInitial(Parser::create);
+        statistics = new TransformStatistics();
+        this.options = options;
+    }
+
+    //identifies output of this transformer for cached results
+    public String getVersion() {
+        return VERSION + " " + options;
+    }
+
+    public TransformResult transform(CharSequence code) {
+        StringBuilder output = new StringBuilder();
+        TransformResult result = transform(DEFAULT_SOURCE_NAME, code, output, null);
+        return new TransformResult(result.isSuccess(), result.isSuccess() ? output.toString() : null,
+                result.getDiagnostics(), result.getMetrics());
+    }
+
+    public TransformResult transform(Reader input, Writer output) {
+        return transform(DEFAULT_SOURCE_NAME, input, output);
+    }
+
+    public TransformResult transform(String sourceName, Reader input, Appendable output) {
+        return transform(sourceName, input, output, null);
+    }
+
+    //on failure output may contain part of the transformed code,
+    //mappings from output to input are added to the source map unless it's null
+    public TransformResult transform(String sourceName, Reader input, Appendable output, SourceMap sourceMap) {
+        return transform(sourceName, input, null, output, sourceMap);
+    }
+
+    //the same source is used by parser and for copying of unchanged statements,
+    //it's turned to string only for parser
+    public TransformResult transform(String sourceName, CharSequence source, Appendable output, SourceMap sourceMap) {
+        return transform(sourceName, null, source, null, null, output, sourceMap);
+    }
+
+    //analyzed unit of the source is passed to consumer before emission, so it may be stored
+    public TransformResult transform(String sourceName, CharSequence source, Appendable output, SourceMap sourceMap,
+                                     Consumer<AnalyzedUnit> analyzed) {
+        return transform(sourceName, null, source, null, analyzed, output, sourceMap);
+    }
+
+    //unit stored for the same source is emitted without parsing and analysis
+    public TransformResult transform(String sourceName, CharSequence source, AnalyzedUnit unit, Appendable output,
+                                     SourceMap sourceMap) {
+        return transform(sourceName, null, source, unit, null, output, sourceMap);
+    }
+
+    private TransformResult transform(String sourceName, Reader input, CharSequence source, Appendable output,
+                                      SourceMap sourceMap) {
+        return transform(sourceName, input, source, null, null, output, sourceMap);
+    }
+
+    private TransformResult transform(String sourceName, Reader input, CharSequence source, AnalyzedUnit unit,
+                                      Consumer<AnalyzedUnit> analyzed, Appendable output, SourceMap sourceMap) {
+        List<TransformDiagnostic> diagnostics = new ArrayList<>();
+        TransformMetrics metrics = new TransformMetrics();
+        TransformEvent event = new TransformEvent();
+        event.begin();
+        boolean success = transform(sourceName, input, source, unit, analyzed, output, sourceMap, diagnostics,
+                metrics);
+        event.end();
+        statistics.add(metrics, success);
+        if (event.shouldCommit()) {
+            event.sourceName = sourceName;
+            event.success = success;
+            event.parseNanos = metrics.getWallNanos(TransformMetrics.Phase.PARSE);
+            event.analysisNanos = metrics.getWallNanos(TransformMetrics.Phase.ANALYSIS);
+            event.emissionNanos = metrics.getWallNanos(TransformMetrics.Phase.EMISSION);
+            event.writeNanos = metrics.getWallNanos(TransformMetrics.Phase.WRITE);
+            for (TransformMetrics.Phase phase : TransformMetrics.Phase.values()) {
+                event.allocatedBytes += metrics.getAllocatedBytes(phase);
+            }
+            event.nodesCount = metrics.getNodesCount();
+            event.liftedFunctionsCount = metrics.getLiftedFunctionsCount();
+            event.commit();
+        }
+        return new TransformResult(success, null, diagnostics, metrics);
+    }
+
+    public TransformOptions getOptions() {
+        return options;
+    }
+
+    //sum of metrics of all transformations done by this transformer
+    public TransformStatistics getStatistics() {
+        return statistics;
+    }
+
+    //source is read from input if it's null, it's parsed and analyzed unless unit is given
+    private boolean transform(String sourceName, Reader input, CharSequence source, AnalyzedUnit unit,
+                              Consumer<AnalyzedUnit> analyzed, Appendable output, SourceMap sourceMap,
+                              List<TransformDiagnostic> diagnostics, TransformMetrics metrics) {
+        boolean[] hasErrors = {false};
+        try {
+            CompilationUnitTree cut;
+            ScopeAnalysis scopeAnalysis;
+            if (unit == null) {
+                DiagnosticListener listener = (diagnostic) -> {
+                    hasErrors[0] |= diagnostic.getKind() == Diagnostic.Kind.ERROR;
+                    diagnostics.add(new TransformDiagnostic(diagnostic.getKind() == Diagnostic.Kind.ERROR
+                            ? TransformDiagnostic.Kind.ERROR : TransformDiagnostic.Kind.WARNING,
+                            diagnostic.getMessage(), diagnostic.getLineNumber(), diagnostic.getColumnNumber()));
+                };
+                //unchanged and unsupported statements are copied from source, so it's kept in memory
+                if (source == null && (options.isCopyUnchanged() || options.isRecoverable())) {
+                    source = read(input);
+                }
+                cut = source == null ? parsers.get().parse(sourceName, input, listener)
+                        : parsers.get().parse(sourceName, source.toString(), listener);
+                metrics.mark(TransformMetrics.Phase.PARSE);
+                if (cut == null || hasErrors[0]) {
+                    diagnostics.add(new TransformDiagnostic(sourceName + ": cant parse given code", -1, -1));
+                    return false;
+                }
+                scopeAnalysis = CollectorIdentifiersVisitor.analyze(cut);
+                if (analyzed != null) {
+                    analyzed.accept(new AnalyzedUnit(cut, scopeAnalysis));
+                }
+            } else {
+                metrics.mark(TransformMetrics.Phase.PARSE);
+                cut = unit.getUnit();
+                scopeAnalysis = unit.getAnalysis();
+            }
+            metrics.mark(TransformMetrics.Phase.ANALYSIS);
+            DestructuringAssignmentVisitor visitor;
+            if (options.isStreamLiftedFunctions()) {
+                visitor = emitStreamingLiftedFunctions(cut, scopeAnalysis, source, output, sourceMap);
+            } else {
+                visitor = new DestructuringAssignmentVisitor(output, scopeAnalysis, options, sourceMap);
+                visitor.setSource(source);
+                cut.accept(visitor, null);
+            }
+            for (TransformDiagnostic diagnostic : visitor.getDiagnostics()) {
+                diagnostics.add(new TransformDiagnostic(diagnostic.getKind(),
+                        sourceName + ": " + diagnostic.getMessage(), diagnostic.getLine(), diagnostic.getColumn()));
+            }
+            metrics.setNodesCount(visitor.getNodesCount());
+            metrics.setLiftedFunctionsCount(visitor.getLiftedFunctionsCount());
+            metrics.addAllocatedBytes(TransformMetrics.Phase.EMISSION, visitor.getWorkersAllocatedBytes());
+            metrics.mark(TransformMetrics.Phase.EMISSION);
+            if (output instanceof Flushable) {
+                ((Flushable) output).flush();
+            }
+            metrics.mark(TransformMetrics.Phase.WRITE);
+            return true;
+        } catch (NashornException e) {
+            diagnostics.add(new TransformDiagnostic(sourceName + ": error while parsing " + e.getMessage(),
+                    e.getLineNumber(), e.getColumnNumber()));
+        } catch (IOException e) {
+            diagnostics.add(new TransformDiagnostic(sourceName + ": " + e.getMessage(), -1, -1));
+        } catch (UncheckedIOException e) {
+            diagnostics.add(new TransformDiagnostic(sourceName + ": " + e.getCause().getMessage(), -1, -1));
+        } catch (UnsupportedStatementException | IllegalArgumentException e) {
+            diagnostics.add(new TransformDiagnostic(sourceName + ": " + e.getMessage(), -1, -1));
+        } catch (RuntimeException | StackOverflowError e) {
+            //any failure of one input, too deep nesting included, is the failed result of it
+            diagnostics.add(new TransformDiagnostic(sourceName + ": " + e, -1, -1));
+        }
+        return false;
+    }
+
+    private static String read(Reader input) throws IOException {
+        StringBuilder source = new StringBuilder();
+        char[] buffer = new char[BUFFER_SIZE];
+        int length;
+        while ((length = input.read(buffer)) > 0) {
+            source.append(buffer, 0, length);
+        }
+        return source.toString();
+    }
+
+    //lifted functions are spilled to temporary file, so only the function being visited stays in memory
+    private DestructuringAssignmentVisitor emitStreamingLiftedFunctions(CompilationUnitTree cut,
+            ScopeAnalysis scopeAnalysis, CharSequence source, Appendable output, SourceMap sourceMap)
+            throws IOException {
+        Path spill = Files.createTempFile("lifted", ".js");
+        try {
+            DestructuringAssignmentVisitor visitor;
+            try (Writer liftedOut = Files.newBufferedWriter(spill)) {
+                visitor = new DestructuringAssignmentVisitor(output, scopeAnalysis, options, sourceMap, liftedOut);
+                visitor.setSource(source);
+                cut.accept(visitor, null);
+            }
+            try (Reader lifted = Files.newBufferedReader(spill)) {
+                char[] buffer = new char[BUFFER_SIZE];
+                int length;
+                while ((length = lifted.read(buffer)) > 0) {
+                    if (output instanceof Writer) {
+                        ((Writer) output).write(buffer, 0, length);
+                    } else {
+                        output.append(CharBuffer.wrap(buffer, 0, length));
+                    }
+                }
+            }
+            return visitor;
+        } finally {
+            Files.deleteIfExists(spill);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package main;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+//keeps transformer warm and retransforms only changed files of watched directories
+public class WatchTransformer implements Closeable {
+    private static final String JS_EXTENSION = ".js";
+    private static final long DEBOUNCE_MILLIS = 100;
+    private Path outputRoot;
+    private TransformCache cache;
+    private WatchService watchService;
+    private Map<WatchKey, WatchedDirectory> watchedDirectories;
+
+    public WatchTransformer(Path outputRoot, TransformCache cache) throws IOException {
+        this.outputRoot = outputRoot;
+        this.cache = cache;
+        watchService = FileSystems.getDefault().newWatchService();
+        watchedDirectories = new HashMap<>();
+    }
+
+    public void addDirectory(Path inputRoot) throws IOException {
+        register(inputRoot, inputRoot);
+    }
+
+    //never returns normally, stop it by interrupting the thread
+    public void run() throws IOException, InterruptedException {
+        while (true) {
+            process(watchService.take());
+        }
+    }
+
+    //waits for changes at most the given time, returns false if there were none
+    public boolean poll(long timeout, TimeUnit unit) throws IOException, InterruptedException {
+        WatchKey key = watchService.poll(timeout, unit);
+        if (key == null) {
+            return false;
+        }
+        process(key);
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void process(WatchKey key) throws IOException, InterruptedException {
+        Set<Path> changedFiles = new LinkedHashSet<>();
+        Map<Path, Path> roots = new HashMap<>();
+        //events of one save usually come in a burst, wait until they stop
+        while (key != null) {
+            collectChanges(key, changedFiles, roots);
+            key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        //failure of one file is reported and watching goes on
+        for (Path file : changedFiles) {
+            try {
+                update(file, roots.get(file));
+            } catch (IOException | RuntimeException | StackOverflowError e) {
+                System.err.println(file + ": " + e);
+            }
+        }
+    }
+
+    private void collectChanges(WatchKey key, Set<Path> changedFiles, Map<Path, Path> roots) throws IOException {
+        WatchedDirectory watched = watchedDirectories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (watched == null) {
+                continue;
+            }
+            if (event.kind() == OVERFLOW) {
+                addAllFiles(watched.root, watched.root, changedFiles, roots);
+                continue;
+            }
+            Path file = watched.directory.resolve((Path) event.context());
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(file)) {
+                register(file, watched.root);
+                addAllFiles(file, watched.root, changedFiles, roots);
+            } else if (event.kind() == ENTRY_DELETE || file.getFileName().toString().endsWith(JS_EXTENSION)) {
+                //deleted directory gets no events of its files when it's moved away
+                changedFiles.add(file);
+                roots.put(file, watched.root);
+            }
+        }
+        if (!key.reset()) {
+            watchedDirectories.remove(key);
+        }
+    }
+
+    //outputs of deleted input are removed, the whole mirrored tree if it was directory
+    private void update(Path input, Path root) throws IOException {
+        Path output = outputRoot.resolve(root.relativize(input).toString());
+        if (Files.exists(input)) {
+            if (Files.isRegularFile(input) && input.getFileName().toString().endsWith(JS_EXTENSION)
+                    && DestructuringAssignmentTransformer.transformFile(input.toString(), output.toString(), cache)) {
+                System.out.println("transformed " + input);
+            }
+        } else if (Files.isDirectory(output)) {
+            List<Path> outputs;
+            try (Stream<Path> files = Files.walk(output)) {
+                outputs = files.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+            }
+            for (Path file : outputs) {
+                Files.deleteIfExists(file);
+            }
+            System.out.println("removed " + output);
+        } else {
+            boolean isRemoved = Files.deleteIfExists(output);
+            isRemoved |= Files.deleteIfExists(DestructuringAssignmentTransformer.getSourceMapPath(output));
+            if (isRemoved) {
+                System.out.println("removed " + output);
+            }
+        }
+    }
+
+    private void register(Path directory, Path root) throws IOException {
+        try (Stream<Path> directories = Files.walk(directory)) {
+            for (Path nested : (Iterable<Path>) directories::iterator) {
+                if (Files.isDirectory(nested)) {
+                    WatchKey key = nested.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+                    watchedDirectories.put(key, new WatchedDirectory(nested, root));
+                }
+            }
+        }
+    }
+
+    private void addAllFiles(Path directory, Path root, Set<Path> changedFiles, Map<Path, Path> roots)
+            throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.isRegularFile(file) && file.getFileName().toString().endsWith(JS_EXTENSION)) {
+                    changedFiles.add(file);
+                    roots.put(file, root);
+                }
+            }
+        }
+    }
+
+    private static class WatchedDirectory {
+        private Path directory;
+        private Path root;
+
+        WatchedDirectory(Path directory, Path root) {
+            this.directory = directory;
+            this.root = root;
+        }
+    }
+}